@@ -0,0 +1,301 @@
+package com.example.finder;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.FirebaseStorage;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load test for the item data path against the Firebase Local Emulator Suite.
+ *
+ * Start the emulators first ({@code firebase emulators:start --only firestore,storage}); the
+ * test is skipped when they can't be reached. It seeds thousands of items with synthetic ORB
+ * descriptors, then reports submit throughput through the upload outbox and search latency
+ * percentiles for both the Firestore-paged and the on-device index paths.
+ *
+ * Instrumentation arguments: {@code emulatorHost} (default 10.0.2.2, the host seen from an
+ * Android emulator), {@code loadItems} (default 2000) and {@code loadSearches} (default 30).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DataPathLoadTest {
+
+    private static final String TAG = "DataPathLoadTest";
+    private static final int FIRESTORE_PORT = 8080;
+    private static final int STORAGE_PORT = 9199;
+
+    private static final int BATCH_SIZE = 400;
+    private static final int SUBMISSIONS = 50;
+    private static final String[] CATEGORIES = {"Jewelry", "Laptop/Computer", "Mobile Phone", "Others"};
+
+    private static String host;
+    private static int itemCount;
+    private static int searchCount;
+    private static FirebaseFirestore firestore;
+    private static File workDir;
+
+    // Seeded items kept in memory as queries with a known answer
+    private static final List<String> probeIds = new ArrayList<>();
+    private static final List<ItemFeatures> probeFeatures = new ArrayList<>();
+    private static final Map<String, byte[]> seededEncodings = new HashMap<>();
+
+    @BeforeClass
+    public static void setUpEmulators() throws Exception {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        host = arguments.getString("emulatorHost", "10.0.2.2");
+        itemCount = Integer.parseInt(arguments.getString("loadItems", "2000"));
+        searchCount = Integer.parseInt(arguments.getString("loadSearches", "30"));
+        Assume.assumeTrue("Firestore emulator not reachable at " + host, reachable(host, FIRESTORE_PORT));
+        Assume.assumeTrue("Storage emulator not reachable at " + host, reachable(host, STORAGE_PORT));
+        assertTrue(OpenCVLoader.initDebug());
+
+        firestore = FirebaseFirestore.getInstance();
+        firestore.useEmulator(host, FIRESTORE_PORT);
+        FirebaseStorage.getInstance().useEmulator(host, STORAGE_PORT);
+        clearEmulatorData();
+
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        workDir = new File(context.getCacheDir(), "load-test");
+        workDir.mkdirs();
+
+        seedItems();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        for (ItemFeatures features : probeFeatures) {
+            features.release();
+        }
+        if (workDir != null) {
+            File[] files = workDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void submitThroughput() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        UploadOutbox outbox = UploadOutbox.getInstance(context);
+        List<Uri> photos = new ArrayList<>();
+        for (int i = 0; i < SUBMISSIONS; i++) {
+            photos.add(Uri.fromFile(writeSyntheticPhoto(i)));
+        }
+
+        LatencyStats latency = new LatencyStats("submit");
+        List<Task<String>> tasks = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < SUBMISSIONS; i++) {
+                long submitted = System.nanoTime();
+                Task<String> task = outbox.submit(UploadOutbox.KIND_ITEM, "items", itemFields(i),
+                        Collections.singletonList(photos.get(i)), true, null);
+                task.addOnSuccessListener(id -> latency.add(System.nanoTime() - submitted));
+                tasks.add(task);
+            }
+        });
+        Tasks.await(Tasks.whenAll(tasks), 5, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        String report = String.format("submit throughput: %d items in %.1fs (%.2f items/s); %s",
+                SUBMISSIONS, seconds, SUBMISSIONS / seconds, latency.summary());
+        Log.i(TAG, report);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status(report));
+        assertEquals(SUBMISSIONS, latency.count());
+    }
+
+    @Test
+    public void searchLatencyFromFirestore() throws Exception {
+        ItemSearchEngine engine = new ItemSearchEngine(new FirestoreItemRepository(firestore), null, null);
+        try {
+            runSearches(engine, new LatencyStats("search (firestore, " + itemCount + " items)"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void searchLatencyFromLocalIndex() throws Exception {
+        File indexFile = new File(workDir, "descriptor_index.bin");
+        indexFile.delete();
+        DescriptorIndex index = new DescriptorIndex(indexFile);
+        long timestamp = System.currentTimeMillis();
+        Map<String, String> attributes = new HashMap<>();
+        for (Map.Entry<String, byte[]> item : seededEncodings.entrySet()) {
+            index.put(item.getKey(), timestamp, "https://example.invalid/" + item.getKey(), "", attributes, item.getValue());
+        }
+        index.markSynced(timestamp);
+
+        ItemSearchEngine engine = new ItemSearchEngine(new FirestoreItemRepository(firestore), index, null);
+        try {
+            runSearches(engine, new LatencyStats("search (local index, " + index.size() + " items)"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private void runSearches(ItemSearchEngine engine, LatencyStats latency) throws Exception {
+        Random random = new Random(7);
+        int hits = 0;
+        for (int i = 0; i < searchCount; i++) {
+            int probe = random.nextInt(probeIds.size());
+            SearchFixtures.BlockingSearchListener listener = new SearchFixtures.BlockingSearchListener();
+            long start = System.nanoTime();
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                    engine.search(probeFeatures.get(probe), ItemSearchEngine.DEFAULT_TOP_K, listener));
+            List<SearchResult> results = listener.await(2, TimeUnit.MINUTES);
+            latency.add(System.nanoTime() - start);
+            if (!results.isEmpty() && results.get(0).getDocumentId().equals(probeIds.get(probe))) {
+                hits++;
+            }
+        }
+
+        String report = latency.summary() + " top-1 hits=" + hits + "/" + searchCount;
+        Log.i(TAG, report);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status(report));
+        // Every probe is an exact copy of a seeded item, so it must rank itself first
+        assertEquals(searchCount, hits);
+    }
+
+    // Seed the emulator in batched writes; a sample of the items is kept as search probes
+    private static void seedItems() throws Exception {
+        Random random = new Random(42);
+        int probeEvery = Math.max(1, itemCount / 100);
+        long start = System.nanoTime();
+        WriteBatch batch = firestore.batch();
+        int inBatch = 0;
+        for (int i = 0; i < itemCount; i++) {
+            ItemFeatures features = SearchFixtures.randomFeatures(random);
+            byte[] encoded = DescriptorCodec.encode(features);
+            String id = firestore.collection("items").document().getId();
+
+            Map<String, Object> item = itemFields(i);
+            item.put("imageUrl", "https://example.invalid/" + id);
+            item.put("descriptors", Blob.fromBytes(encoded));
+            item.put("descriptorSets", Collections.singletonList(Blob.fromBytes(encoded)));
+            item.put("timestamp", FieldValue.serverTimestamp());
+            batch.set(firestore.collection("items").document(id), item);
+            seededEncodings.put(id, encoded);
+
+            if (i % probeEvery == 0) {
+                probeIds.add(id);
+                probeFeatures.add(features);
+            } else {
+                features.release();
+            }
+            if (++inBatch == BATCH_SIZE) {
+                Tasks.await(batch.commit(), 2, TimeUnit.MINUTES);
+                batch = firestore.batch();
+                inBatch = 0;
+            }
+        }
+        if (inBatch > 0) {
+            Tasks.await(batch.commit(), 2, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Log.i(TAG, String.format("seeded %d items in %.1fs", itemCount, seconds));
+    }
+
+    private static Map<String, Object> itemFields(int i) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("description", "Load test item " + i);
+        item.put("category", CATEGORIES[i % CATEGORIES.length]);
+        item.put("date", "2024-01-01");
+        item.put("dateDay", ItemDates.parseDay("2024-01-01"));
+        item.put("userId", "load-test");
+        return item;
+    }
+
+    // A textured photo so ORB finds features in it
+    private static File writeSyntheticPhoto(int seed) throws IOException {
+        Random random = new Random(seed);
+        Bitmap bitmap = Bitmap.createBitmap(1280, 960, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.WHITE);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        for (int i = 0; i < 200; i++) {
+            paint.setColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            float x = random.nextFloat() * 1280;
+            float y = random.nextFloat() * 960;
+            canvas.drawRect(x, y, x + 20 + random.nextFloat() * 80, y + 20 + random.nextFloat() * 80, paint);
+        }
+        File file = new File(workDir, "photo-" + seed + ".jpg");
+        try (OutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        }
+        bitmap.recycle();
+        return file;
+    }
+
+    private static boolean reachable(String host, int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // The Firestore emulator exposes a REST endpoint that drops every document in the project
+    private static void clearEmulatorData() throws IOException {
+        String projectId = FirebaseApp.getInstance().getOptions().getProjectId();
+        URL url = new URL("http://" + host + ":" + FIRESTORE_PORT + "/emulator/v1/projects/" + projectId
+                + "/databases/(default)/documents");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("DELETE");
+            assertEquals(200, connection.getResponseCode());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static Bundle status(String report) {
+        Bundle bundle = new Bundle();
+        bundle.putString("stream", report + "\n");
+        return bundle;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.finder;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Microbenchmark comparing per-element descriptor marshalling with the bulk
+ * {@link DescriptorCodec} path for a typical ORB item (500 keypoints x 32 bytes).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DescriptorCodecBenchmark {
+
+    private static final String TAG = "DescriptorCodecBench";
+    private static final int ROWS = 500;
+    private static final int COLS = 32;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 50;
+    // Wall-clock timings are noisy on shared devices; bulk is normally far faster, so only a
+    // bulk path slower than twice the per-element one is treated as a regression
+    private static final int MAX_BULK_SLOWDOWN = 2;
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        assertTrue(OpenCVLoader.initDebug());
+    }
+
+    @Test
+    public void roundTripPreservesDescriptors() {
+        Mat descriptors = randomDescriptors();
+        Mat decoded = DescriptorCodec.decode(DescriptorCodec.encode(descriptors));
+        assertNotNull(decoded);
+        assertEquals(0, Core.norm(descriptors, decoded, Core.NORM_HAMMING), 0);
+    }
+
+    @Test
+    public void legacyListIsStillReadable() {
+        Mat descriptors = randomDescriptors();
+        Mat decoded = DescriptorCodec.fromFirestore(perElementEncode(descriptors));
+        assertNotNull(decoded);
+        assertEquals(0, Core.norm(descriptors, decoded, Core.NORM_HAMMING), 0);
+    }
+
+    @Test
+    public void bulkIsNotSlowerPerItem() {
+        Mat descriptors = randomDescriptors();
+
+        for (int i = 0; i < WARMUP; i++) {
+            perElementDecode(perElementEncode(descriptors));
+            DescriptorCodec.decode(DescriptorCodec.encode(descriptors));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            perElementDecode(perElementEncode(descriptors));
+        }
+        long perElementNs = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            DescriptorCodec.decode(DescriptorCodec.encode(descriptors));
+        }
+        long bulkNs = (System.nanoTime() - start) / ITERATIONS;
+
+        Log.i(TAG, "per-element: " + perElementNs / 1000 + " us/item, bulk: " + bulkNs / 1000 + " us/item");
+        assertTrue("bulk " + bulkNs + " ns vs per-element " + perElementNs + " ns",
+                bulkNs < perElementNs * MAX_BULK_SLOWDOWN);
+    }
+
+    private static Mat randomDescriptors() {
+        Mat descriptors = new Mat(ROWS, COLS, CvType.CV_8U);
+        Core.randu(descriptors, new Scalar(0), new Scalar(256));
+        return descriptors;
+    }
+
+    // The marshalling used before DescriptorCodec: one JNI call per byte in each direction
+    private static List<Double> perElementEncode(Mat descriptors) {
+        List<Double> list = new ArrayList<>();
+        for (int i = 0; i < descriptors.rows(); i++) {
+            for (int j = 0; j < descriptors.cols(); j++) {
+                list.add(descriptors.get(i, j)[0]);
+            }
+        }
+        return list;
+    }
+
+    private static Mat perElementDecode(List<Double> list) {
+        Mat descriptors = new Mat(list.size() / COLS, COLS, CvType.CV_8U);
+        int index = 0;
+        for (int i = 0; i < descriptors.rows(); i++) {
+            for (int j = 0; j < descriptors.cols(); j++) {
+                descriptors.put(i, j, list.get(index++).byteValue());
+            }
+        }
+        return descriptors;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.finder;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Search latency against the in-memory ItemRepository and DescriptorStore, so matching changes
+ * can be measured without a Firebase project. Results are delivered on the worker threads
+ * through a direct callback executor, so nothing here needs a Looper; it is still an
+ * instrumented test because scoring runs on OpenCV's Android natives.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InMemorySearchBenchmark {
+
+    private static final String TAG = "InMemorySearchBench";
+    private static final int ITEMS = 1000;
+    private static final int SEARCHES = 20;
+    private static final String[] CATEGORIES = {"Jewelry", "Laptop/Computer", "Mobile Phone", "Others"};
+
+    private static final InMemoryItemRepository repository = new InMemoryItemRepository();
+    private static final InMemoryDescriptorStore store = new InMemoryDescriptorStore();
+    private static final List<ItemFeatures> probes = new ArrayList<>();
+    private static final List<String> probeIds = new ArrayList<>();
+    private static final List<String> probeCategories = new ArrayList<>();
+
+    @BeforeClass
+    public static void seed() {
+        assertTrue(OpenCVLoader.initDebug());
+        Random random = new Random(42);
+        for (int i = 0; i < ITEMS; i++) {
+            ItemFeatures features = SearchFixtures.randomFeatures(random);
+            byte[] encoded = DescriptorCodec.encode(features);
+            String id = "item-" + i;
+            String category = CATEGORIES[i % CATEGORIES.length];
+            repository.add(new ItemRecord(id, i, "https://example.invalid/" + id, null, "", category,
+                    ItemDates.UNKNOWN_DAY, null, Collections.singletonList(encoded)));
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put(DescriptorStore.ATTRIBUTE_CATEGORY, category);
+            store.put(id, i, "https://example.invalid/" + id, "", attributes, encoded);
+            if (i % (ITEMS / SEARCHES) == 0) {
+                probes.add(features);
+                probeIds.add(id);
+                probeCategories.add(category);
+            } else {
+                features.release();
+            }
+        }
+        store.markSynced(System.currentTimeMillis());
+    }
+
+    @AfterClass
+    public static void release() {
+        for (ItemFeatures features : probes) {
+            features.release();
+        }
+    }
+
+    @Test
+    public void repositoryScan() throws Exception {
+        run(new ItemSearchEngine(repository, null, null, Runnable::run), SearchFilter.NONE, "repository");
+    }
+
+    @Test
+    public void storeScan() throws Exception {
+        run(new ItemSearchEngine(repository, store, null, Runnable::run), SearchFilter.NONE, "store");
+    }
+
+    @Test
+    public void storeScanWithinCategory() throws Exception {
+        run(new ItemSearchEngine(repository, store, null, Runnable::run), null, "store, one category");
+    }
+
+    // A null filter searches each probe's own category partition
+    private void run(ItemSearchEngine engine, SearchFilter filter, String name) throws Exception {
+        LatencyStats latency = new LatencyStats("search (" + name + ", " + ITEMS + " items)");
+        try {
+            for (int i = 0; i < probes.size(); i++) {
+                SearchFilter probeFilter = filter != null ? filter : SearchFilter.NONE.withCategory(probeCategories.get(i));
+                SearchFixtures.BlockingSearchListener listener = new SearchFixtures.BlockingSearchListener();
+                long start = System.nanoTime();
+                engine.search(probes.get(i), probeFilter, ItemSearchEngine.DEFAULT_TOP_K, listener);
+                List<SearchResult> results = listener.await(1, TimeUnit.MINUTES);
+                latency.add(System.nanoTime() - start);
+                assertFalse(results.isEmpty());
+                assertEquals(probeIds.get(i), results.get(0).getDocumentId());
+            }
+        } finally {
+            engine.shutdown();
+        }
+        Log.i(TAG, latency.summary());
+    }
+}
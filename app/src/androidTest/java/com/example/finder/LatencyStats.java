@@ -0,0 +1,46 @@
+package com.example.finder;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Collects latency samples for a load test and reports nearest-rank percentiles.
+ */
+class LatencyStats {
+
+    private final String name;
+    private long[] samples = new long[64];
+    private int count;
+
+    LatencyStats(String name) {
+        this.name = name;
+    }
+
+    synchronized void add(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    // Nearest-rank percentile in milliseconds; p is in [0, 100]
+    synchronized double percentileMillis(double p) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))] / 1_000_000.0;
+    }
+
+    String summary() {
+        return String.format(Locale.US, "%s: n=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                name, count(), percentileMillis(50), percentileMillis(95), percentileMillis(99),
+                percentileMillis(100));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.finder;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ranking between geometrically verified candidates and candidates stored without keypoints,
+ * which can only be scored by the ratio test.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MatchScorerTest {
+
+    private static final int ROWS = 200;
+    private static final int SHARED_ROWS = 30;
+
+    @BeforeClass
+    public static void loadOpenCV() {
+        assertTrue(OpenCVLoader.initDebug());
+    }
+
+    @Test
+    public void verifiedMatchOutranksEqualUnverifiedMatch() {
+        Random random = new Random(1);
+        Mat descriptors = randomDescriptors();
+        float[] keypoints = randomKeypoints(random);
+        ItemFeatures query = new ItemFeatures(descriptors, keypoints);
+
+        double verified = MatchScorer.score(query, new ItemFeatures(descriptors.clone(), keypoints.clone()));
+        double unverified = MatchScorer.score(query, new ItemFeatures(descriptors.clone(), null));
+
+        assertTrue("unverified pair should still match", unverified > 0);
+        assertTrue(verified + " should outrank " + unverified, verified > unverified);
+    }
+
+    @Test
+    public void weakVerifiedMatchOutranksPerfectUnverifiedMatch() {
+        Random random = new Random(2);
+        Mat descriptors = randomDescriptors();
+        float[] keypoints = randomKeypoints(random);
+        ItemFeatures query = new ItemFeatures(descriptors, keypoints);
+
+        // Only SHARED_ROWS of the candidate's descriptors come from the query
+        Mat partial = randomDescriptors();
+        descriptors.rowRange(0, SHARED_ROWS).copyTo(partial.rowRange(0, SHARED_ROWS));
+        float[] partialKeypoints = randomKeypoints(random);
+        System.arraycopy(keypoints, 0, partialKeypoints, 0, SHARED_ROWS * 2);
+
+        double weakVerified = MatchScorer.score(query, new ItemFeatures(partial, partialKeypoints));
+        double perfectUnverified = MatchScorer.score(query, new ItemFeatures(descriptors.clone(), null));
+
+        assertTrue("partial overlap should verify", weakVerified > MatchScorer.VERIFIED_FLOOR);
+        assertTrue(weakVerified + " should outrank " + perfectUnverified, weakVerified > perfectUnverified);
+    }
+
+    private static Mat randomDescriptors() {
+        Mat descriptors = new Mat(ROWS, 32, CvType.CV_8U);
+        Core.randu(descriptors, new Scalar(0), new Scalar(256));
+        return descriptors;
+    }
+
+    private static float[] randomKeypoints(Random random) {
+        float[] keypoints = new float[ROWS * 2];
+        for (int i = 0; i < ROWS; i++) {
+            keypoints[i * 2] = random.nextFloat() * 640;
+            keypoints[i * 2 + 1] = random.nextFloat() * 480;
+        }
+        return keypoints;
+    }
+}
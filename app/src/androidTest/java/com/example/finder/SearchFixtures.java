@@ -0,0 +1,72 @@
+package com.example.finder;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Shared setup for the search benchmarks and load tests: synthetic item features and a
+ * listener that blocks until a search has finished.
+ */
+class SearchFixtures {
+
+    static final int FEATURES_PER_ITEM = 300;
+
+    private SearchFixtures() {
+    }
+
+    // Random ORB-shaped descriptors with random keypoint positions on a 1024px image
+    static ItemFeatures randomFeatures(Random random) {
+        Mat descriptors = new Mat(FEATURES_PER_ITEM, 32, CvType.CV_8U);
+        Core.randu(descriptors, new Scalar(0), new Scalar(256));
+        float[] keypoints = new float[FEATURES_PER_ITEM * 2];
+        for (int i = 0; i < keypoints.length; i++) {
+            keypoints[i] = random.nextFloat() * 1024;
+        }
+        return new ItemFeatures(descriptors, keypoints);
+    }
+
+    /**
+     * Collects the outcome of one search. await() returns the final results, or rethrows the
+     * exception the engine reported so a failed search fails the test instead of its assertions.
+     */
+    static class BlockingSearchListener implements ItemSearchEngine.Listener {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicReference<List<SearchResult>> results = new AtomicReference<>();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        @Override
+        public void onResultsUpdated(List<SearchResult> topResults) {
+        }
+
+        @Override
+        public void onSearchComplete(List<SearchResult> topResults, int candidatesScanned) {
+            results.set(topResults);
+            done.countDown();
+        }
+
+        @Override
+        public void onSearchFailed(Exception e) {
+            failure.set(e);
+            done.countDown();
+        }
+
+        List<SearchResult> await(long timeout, TimeUnit unit) throws Exception {
+            assertTrue("search timed out", done.await(timeout, unit));
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return results.get();
+        }
+    }
+}
@@ -1,88 +1,44 @@
 package com.example.finder;
 
+import android.content.Context;
 import android.net.Uri;
+import android.util.Log;
 
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.FirebaseFirestoreException;
-import com.google.firebase.firestore.FirebaseFirestoreSettings;
-import com.google.firebase.firestore.SetOptions;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
-
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class DatabaseHelper {
-    private FirebaseFirestore db;
-    private FirebaseStorage storage;
-    private StorageReference storageRef;
+    private final UploadOutbox outbox;
+
+    private static final String TAG = "DatabaseHelper";
 
-    public DatabaseHelper() {
-        db = FirebaseFirestore.getInstance();
-        storage = FirebaseStorage.getInstance();
-        storageRef = storage.getReference();
+    public DatabaseHelper(Context context) {
+        outbox = UploadOutbox.getInstance(context);
     }
 
-    // Method to save archived object
+    // Method to save archived object; the image and document are queued in the upload outbox,
+    // so they survive restarts and resume after network failures instead of being dropped.
+    // Objects without an image go through the outbox too and share its batched writes.
     public void saveArchivedObject(ArchivedObject archivedObject, Uri imageUri, String userId) {
+        archivedObject.setUserId(userId);
+        Map<String, Object> objectMap = toMap(archivedObject);
+        List<Uri> photos = new ArrayList<>();
         if (imageUri != null) {
-            StorageReference imageRef = storageRef.child("images/" + imageUri.getLastPathSegment());
-            imageRef.putFile(imageUri)
-                    .addOnSuccessListener(taskSnapshot -> {
-                        imageRef.getDownloadUrl()
-                                .addOnSuccessListener(uri -> {
-                                    archivedObject.setImageUrl(uri.toString());
-                                    archivedObject.setUserId(userId);
-                                    saveToFirestore(archivedObject);
-                                });
-                    })
-                    .addOnFailureListener(e -> {
-                        // Handle failure (optional)
-                    });
-        } else {
-            archivedObject.setUserId(userId);
-            saveToFirestore(archivedObject);
+            photos.add(imageUri);
         }
+        outbox.submit(UploadOutbox.KIND_ARCHIVE, "archived_objects", objectMap, photos, false, null)
+                .addOnFailureListener(e -> Log.e(TAG, "Error queueing archived object", e));
     }
 
-    // Save to Firestore
-    private void saveToFirestore(ArchivedObject archivedObject) {
+    private static Map<String, Object> toMap(ArchivedObject archivedObject) {
         Map<String, Object> objectMap = new HashMap<>();
         objectMap.put("description", archivedObject.getDescription());
         objectMap.put("timestamp", archivedObject.getTimestamp());
         objectMap.put("location", archivedObject.getLocation());
         objectMap.put("imageUrl", archivedObject.getImageUrl());
         objectMap.put("userId", archivedObject.getUserId());
-
-        db.collection("archived_objects")
-                .add(objectMap)
-                .addOnSuccessListener(documentReference -> {
-                    // Handle successful addition
-                })
-                .addOnFailureListener(e -> {
-                    // Handle failure
-                });
-    }
-
-    // Method to create collections if they don't exist
-    public void createCollectionsIfNotExist() {
-        createCollectionIfNotExist("archived_objects");
-        createCollectionIfNotExist("item_images");
-    }
-
-    private void createCollectionIfNotExist(String collectionName) {
-        db.collection(collectionName).document("dummy_document")
-                .set(new HashMap<>(), SetOptions.merge())
-                .addOnSuccessListener(aVoid -> {
-                    // Collection exists or was successfully created
-                    System.out.println(collectionName + " collection exists or was created successfully.");
-                })
-                .addOnFailureListener(e -> {
-                    // Handle failure
-                    System.out.println("Failed to create " + collectionName + " collection: " + e.getMessage());
-                });
+        return objectMap;
     }
 }
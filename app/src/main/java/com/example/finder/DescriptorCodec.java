@@ -0,0 +1,176 @@
+package com.example.finder;
+
+import com.google.firebase.firestore.Blob;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class DescriptorCodec {
+
+    // Version 1: [version:1][rows:4][cols:4][type:4][rows * cols bytes of CV_8U data]
+    // Version 2: version 1 layout followed by rows (x, y) float pairs for the keypoint positions
+    public static final byte VERSION = 1;
+    public static final byte VERSION_WITH_KEYPOINTS = 2;
+    public static final int HEADER_SIZE = 1 + 4 + 4 + 4;
+
+    // ORB descriptors are 32 bytes wide; legacy List<Double> documents did not record it
+    private static final int LEGACY_COLS = 32;
+
+    private DescriptorCodec() {
+    }
+
+    // Encode a CV_8U descriptor matrix into the versioned binary format
+    public static byte[] encode(Mat descriptors) {
+        return encode(descriptors, null);
+    }
+
+    public static byte[] encode(ItemFeatures features) {
+        return encode(features.getDescriptors(), features.hasKeypoints() ? features.getKeypoints() : null);
+    }
+
+    private static byte[] encode(Mat descriptors, float[] keypoints) {
+        if (descriptors.type() != CvType.CV_8U) {
+            throw new IllegalArgumentException("Only CV_8U descriptors can be encoded, got " + CvType.typeToString(descriptors.type()));
+        }
+        int rows = descriptors.rows();
+        int cols = descriptors.cols();
+        byte[] data = new byte[rows * cols];
+        if (data.length > 0) {
+            Mat continuous = descriptors.isContinuous() ? descriptors : descriptors.clone();
+            continuous.get(0, 0, data);
+        }
+
+        int keypointBytes = keypoints != null ? keypoints.length * 4 : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + data.length + keypointBytes);
+        buffer.put(keypoints != null ? VERSION_WITH_KEYPOINTS : VERSION);
+        buffer.putInt(rows);
+        buffer.putInt(cols);
+        buffer.putInt(CvType.CV_8U);
+        buffer.put(data);
+        if (keypoints != null) {
+            buffer.asFloatBuffer().put(keypoints);
+        }
+        return buffer.array();
+    }
+
+    // Decode bytes produced by encode(); returns null if the payload is not understood
+    public static Mat decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    // Decode an encoded payload starting at the buffer's position and spanning its remaining bytes
+    public static Mat decode(ByteBuffer buffer) {
+        ItemFeatures features = decodeFeatures(buffer);
+        return features != null ? features.getDescriptors() : null;
+    }
+
+    public static ItemFeatures decodeFeatures(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return decodeFeatures(ByteBuffer.wrap(bytes));
+    }
+
+    public static ItemFeatures decodeFeatures(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        byte version = buffer.get();
+        if (version != VERSION && version != VERSION_WITH_KEYPOINTS) {
+            return null;
+        }
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+        int type = buffer.getInt();
+        int keypointBytes = version == VERSION_WITH_KEYPOINTS ? rows * 2 * 4 : 0;
+        if (type != CvType.CV_8U || rows < 0 || cols < 0 || buffer.remaining() != rows * cols + keypointBytes) {
+            return null;
+        }
+
+        Mat descriptors = new Mat(rows, cols, CvType.CV_8U);
+        if (rows * cols > 0) {
+            if (buffer.hasArray()) {
+                descriptors.put(0, 0, buffer.array(), buffer.arrayOffset() + buffer.position(), rows * cols);
+                buffer.position(buffer.position() + rows * cols);
+            } else {
+                byte[] data = new byte[rows * cols];
+                buffer.get(data);
+                descriptors.put(0, 0, data);
+            }
+        }
+
+        float[] keypoints = null;
+        if (version == VERSION_WITH_KEYPOINTS) {
+            keypoints = new float[rows * 2];
+            buffer.asFloatBuffer().get(keypoints);
+        }
+        return new ItemFeatures(descriptors, keypoints);
+    }
+
+    public static Blob toBlob(Mat descriptors) {
+        return Blob.fromBytes(encode(descriptors));
+    }
+
+    public static Blob toBlob(ItemFeatures features) {
+        return Blob.fromBytes(encode(features));
+    }
+
+    // Read the "descriptors" field of an item document, accepting both the binary Blob
+    // format and the legacy List<Double> format written by earlier app versions
+    public static Mat fromFirestore(Object value) {
+        ItemFeatures features = featuresFromFirestore(value);
+        return features != null ? features.getDescriptors() : null;
+    }
+
+    public static ItemFeatures featuresFromFirestore(Object value) {
+        if (value instanceof Blob) {
+            return decodeFeatures(((Blob) value).toBytes());
+        }
+        if (value instanceof List) {
+            Mat descriptors = fromLegacyList((List<?>) value);
+            return descriptors != null ? new ItemFeatures(descriptors, null) : null;
+        }
+        return null;
+    }
+
+    // Same as fromFirestore() but returns the encoded bytes, re-encoding legacy documents
+    public static byte[] encodedFromFirestore(Object value) {
+        if (value instanceof Blob) {
+            byte[] bytes = ((Blob) value).toBytes();
+            return bytes.length >= HEADER_SIZE && (bytes[0] == VERSION || bytes[0] == VERSION_WITH_KEYPOINTS) ? bytes : null;
+        }
+        if (value instanceof List) {
+            Mat descriptors = fromLegacyList((List<?>) value);
+            if (descriptors == null) {
+                return null;
+            }
+            byte[] bytes = encode(descriptors);
+            descriptors.release();
+            return bytes;
+        }
+        return null;
+    }
+
+    private static Mat fromLegacyList(List<?> values) {
+        if (values.isEmpty() || values.size() % LEGACY_COLS != 0) {
+            return null;
+        }
+        byte[] data = new byte[values.size()];
+        for (int i = 0; i < data.length; i++) {
+            Object value = values.get(i);
+            if (!(value instanceof Number)) {
+                return null;
+            }
+            data[i] = (byte) ((Number) value).intValue();
+        }
+        Mat descriptors = new Mat(data.length / LEGACY_COLS, LEGACY_COLS, CvType.CV_8U);
+        descriptors.put(0, 0, data);
+        return descriptors;
+    }
+}
@@ -0,0 +1,491 @@
+package com.example.finder;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Persistent on-device copy of every item's descriptors, keyed by item document ID.
+// The file is an append-only log of put/delete records that is memory-mapped for reads;
+// an in-memory table points each live document at its descriptor payload in the mapping.
+public class DescriptorIndex implements DescriptorStore {
+
+    private static final String TAG = "DescriptorIndex";
+    private static final String FILE_NAME = "descriptor_index.bin";
+    // Holds the time of the last complete sync; absent until the first full snapshot has landed
+    private static final String SYNCED_FILE_NAME = "descriptor_index.synced";
+
+    // Puts written before entries carried attributes; an index holding them is rebuilt
+    private static final byte RECORD_PUT_LEGACY = 1;
+    private static final byte RECORD_DELETE = 2;
+    private static final byte RECORD_PUT = 3;
+
+    // Rewrite the log once superseded records outweigh live ones by this much
+    private static final long COMPACT_MIN_DEAD_BYTES = 1024 * 1024;
+
+    private static DescriptorIndex instance;
+
+    public static synchronized DescriptorIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new DescriptorIndex(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    public static class Entry implements DescriptorStore.Entry {
+        private final String documentId;
+        private final long timestamp;
+        private final String imageUrl;
+        private final String description;
+        private final Map<String, String> attributes;
+        private final long payloadOffset;
+        private final int payloadLength;
+        private final int recordLength;
+        private long revision;
+
+        Entry(String documentId, long timestamp, String imageUrl, String description, Map<String, String> attributes,
+              long payloadOffset, int payloadLength, int recordLength, long revision) {
+            this.documentId = documentId;
+            this.timestamp = timestamp;
+            this.imageUrl = imageUrl;
+            this.description = description;
+            this.attributes = attributes;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+            this.recordLength = recordLength;
+            this.revision = revision;
+        }
+
+        @Override
+        public String getDocumentId() { return documentId; }
+
+        @Override
+        public long getTimestamp() { return timestamp; }
+
+        @Override
+        public String getImageUrl() { return imageUrl; }
+
+        @Override
+        public String getDescription() { return description; }
+
+        @Override
+        public String getAttribute(String name) { return attributes.get(name); }
+
+        @Override
+        public long getRevision() { return revision; }
+    }
+
+    private final File file;
+    private final File syncedFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    // The same entries partitioned by category, so a filtered search only walks its own shard
+    private final Map<String, Map<String, Entry>> partitions = new HashMap<>();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long highWatermark;
+    private long liveBytes;
+    private long deadBytes;
+    private long lastSynced;
+    // Never reset, so a reopened file can't hand out a revision a caller already saw
+    private long nextRevision;
+
+    DescriptorIndex(File file) {
+        this.file = file;
+        this.syncedFile = new File(file.getParentFile(), SYNCED_FILE_NAME);
+        try {
+            open();
+            lastSynced = readLastSynced();
+        } catch (IOException e) {
+            // A corrupt or unreadable index is only a cache; start again from an empty file
+            Log.e(TAG, "Error opening descriptor index, rebuilding", e);
+            closeQuietly();
+            file.delete();
+            syncedFile.delete();
+            try {
+                open();
+            } catch (IOException retry) {
+                Log.e(TAG, "Error recreating descriptor index", retry);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        entries.clear();
+        partitions.clear();
+        highWatermark = 0;
+        liveBytes = 0;
+        deadBytes = 0;
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        remap();
+
+        long validEnd = 0;
+        ByteBuffer buffer = mapped.duplicate();
+        try {
+            while (buffer.remaining() > 0) {
+                long recordStart = buffer.position();
+                byte type = buffer.get();
+                int bodyLength = buffer.getInt();
+                int recordLength = 1 + 4 + bodyLength;
+                if (bodyLength < 0 || bodyLength > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer body = buffer.slice();
+                body.limit(bodyLength);
+                buffer.position(buffer.position() + bodyLength);
+
+                String documentId = readString(body);
+                if (type == RECORD_PUT) {
+                    long timestamp = body.getLong();
+                    String imageUrl = readString(body);
+                    String description = readString(body);
+                    Map<String, String> attributes = readAttributes(body);
+                    int payloadLength = body.getInt();
+                    if (payloadLength != body.remaining()) {
+                        break;
+                    }
+                    long payloadOffset = recordStart + 1 + 4 + body.position();
+                    apply(new Entry(documentId, timestamp, imageUrl, description, attributes,
+                            payloadOffset, payloadLength, recordLength, ++nextRevision));
+                } else if (type == RECORD_PUT_LEGACY) {
+                    // Entries without attributes can't be filtered; resync everything instead
+                    throw new IOException("Descriptor index predates entry attributes");
+                } else if (type == RECORD_DELETE) {
+                    applyDelete(documentId, recordLength);
+                } else {
+                    break;
+                }
+                validEnd = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // Torn write at the tail; everything before validEnd is intact
+        }
+
+        if (validEnd < channel.size()) {
+            Log.w(TAG, "Truncating descriptor index from " + channel.size() + " to " + validEnd + " bytes");
+            channel.truncate(validEnd);
+            remap();
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getHighWatermark() {
+        return highWatermark;
+    }
+
+    @Override
+    public synchronized boolean isSynced() {
+        return lastSynced > 0;
+    }
+
+    @Override
+    public synchronized void markSynced(long timeMillis) {
+        try (RandomAccessFile out = new RandomAccessFile(syncedFile, "rw")) {
+            out.setLength(0);
+            out.writeLong(timeMillis);
+            lastSynced = timeMillis;
+        } catch (IOException e) {
+            Log.e(TAG, "Error recording descriptor index sync", e);
+        }
+    }
+
+    @Override
+    public synchronized long getLastSynced() {
+        return lastSynced;
+    }
+
+    // A marker left beside an index file that was deleted or truncated to nothing is stale
+    private long readLastSynced() {
+        if (!syncedFile.exists()) {
+            return 0;
+        }
+        if (entries.isEmpty()) {
+            syncedFile.delete();
+            return 0;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(syncedFile, "r")) {
+            return in.readLong();
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable descriptor index sync marker, resyncing", e);
+            syncedFile.delete();
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized boolean isCurrent(String documentId, long timestamp) {
+        Entry entry = entries.get(documentId);
+        return entry != null && entry.timestamp >= timestamp;
+    }
+
+    @Override
+    public synchronized List<DescriptorStore.Entry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    @Override
+    public synchronized List<DescriptorStore.Entry> entries(String category) {
+        if (category == null) {
+            return entries();
+        }
+        Map<String, Entry> partition = partitions.get(category);
+        return partition != null ? new ArrayList<>(partition.values()) : new ArrayList<>();
+    }
+
+    @Override
+    public synchronized void put(String documentId, long timestamp, String imageUrl, String description,
+                                 Map<String, String> attributes, byte[] encodedDescriptors) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(encodedDescriptors.length + 256);
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+            writeString(body, documentId);
+            body.writeLong(timestamp);
+            writeString(body, imageUrl);
+            writeString(body, description);
+            body.writeInt(attributes.size());
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                writeString(body, attribute.getKey());
+                writeString(body, attribute.getValue());
+            }
+            body.writeInt(encodedDescriptors.length);
+            int payloadStart = body.size();
+            body.write(encodedDescriptors);
+            body.flush();
+
+            long recordStart = append(RECORD_PUT, bodyBytes.toByteArray());
+            int recordLength = 1 + 4 + bodyBytes.size();
+            apply(new Entry(documentId, timestamp, imageUrl, description, new HashMap<>(attributes),
+                    recordStart + 1 + 4 + payloadStart, encodedDescriptors.length, recordLength, ++nextRevision));
+            maybeCompact();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing " + documentId + " to descriptor index", e);
+        }
+    }
+
+    // Additional photos of an item are indexed under "<documentId>#<n>"
+    public static String keyFor(String documentId, int photoIndex) {
+        return photoIndex == 0 ? documentId : documentId + "#" + photoIndex;
+    }
+
+    public static String documentIdOf(String key) {
+        int separator = key.indexOf('#');
+        return separator < 0 ? key : key.substring(0, separator);
+    }
+
+    public static int photoIndexOf(String key) {
+        int separator = key.indexOf('#');
+        return separator < 0 ? 0 : Integer.parseInt(key.substring(separator + 1));
+    }
+
+    @Override
+    public synchronized void removePhotosFrom(String documentId, int photoCount) {
+        List<String> keys = new ArrayList<>();
+        for (String key : entries.keySet()) {
+            if (documentIdOf(key).equals(documentId) && photoIndexOf(key) >= photoCount) {
+                keys.add(key);
+            }
+        }
+        for (String key : keys) {
+            remove(key);
+        }
+    }
+
+    public synchronized void remove(String documentId) {
+        if (channel == null || !entries.containsKey(documentId)) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+            writeString(body, documentId);
+            body.flush();
+            append(RECORD_DELETE, bodyBytes.toByteArray());
+            applyDelete(documentId, 1 + 4 + bodyBytes.size());
+            maybeCompact();
+        } catch (IOException e) {
+            Log.e(TAG, "Error removing " + documentId + " from descriptor index", e);
+        }
+    }
+
+    // Decode an entry's descriptors straight out of the mapped file
+    @Override
+    public ItemFeatures readFeatures(DescriptorStore.Entry storeEntry) {
+        ByteBuffer payload;
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(storeEntry.getDocumentId());
+            if (entry != storeEntry || channel == null) {
+                return null;
+            }
+            try {
+                if (entry.payloadOffset + entry.payloadLength > mapped.capacity()) {
+                    remap();
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error remapping descriptor index", e);
+                return null;
+            }
+            payload = mapped.duplicate();
+            payload.position((int) entry.payloadOffset);
+            payload.limit((int) (entry.payloadOffset + entry.payloadLength));
+        }
+        return DescriptorCodec.decodeFeatures(payload.slice());
+    }
+
+    private void apply(Entry entry) {
+        Entry previous = entries.put(entry.documentId, entry);
+        if (previous != null) {
+            removeFromPartition(previous);
+            liveBytes -= previous.recordLength;
+            deadBytes += previous.recordLength;
+        }
+        String category = partitionOf(entry);
+        Map<String, Entry> partition = partitions.get(category);
+        if (partition == null) {
+            partition = new HashMap<>();
+            partitions.put(category, partition);
+        }
+        partition.put(entry.documentId, entry);
+        liveBytes += entry.recordLength;
+        highWatermark = Math.max(highWatermark, entry.timestamp);
+    }
+
+    private void applyDelete(String documentId, int recordLength) {
+        Entry previous = entries.remove(documentId);
+        if (previous != null) {
+            removeFromPartition(previous);
+            liveBytes -= previous.recordLength;
+            deadBytes += previous.recordLength;
+        }
+        deadBytes += recordLength;
+    }
+
+    private void removeFromPartition(Entry entry) {
+        String category = partitionOf(entry);
+        Map<String, Entry> partition = partitions.get(category);
+        if (partition != null) {
+            partition.remove(entry.documentId);
+            if (partition.isEmpty()) {
+                partitions.remove(category);
+            }
+        }
+    }
+
+    private static String partitionOf(Entry entry) {
+        String category = entry.getCategory();
+        return category != null ? category : "";
+    }
+
+    private long append(byte type, byte[] body) throws IOException {
+        long recordStart = channel.size();
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + body.length);
+        record.put(type);
+        record.putInt(body.length);
+        record.put(body);
+        record.flip();
+        channel.position(recordStart);
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        return recordStart;
+    }
+
+    private void remap() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    private void maybeCompact() throws IOException {
+        if (deadBytes < COMPACT_MIN_DEAD_BYTES || deadBytes < liveBytes) {
+            return;
+        }
+        File compacted = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(compacted, "rw")) {
+            out.setLength(0);
+            FileChannel outChannel = out.getChannel();
+            for (Entry entry : entries.values()) {
+                long start = entry.payloadOffset + entry.payloadLength - entry.recordLength;
+                channel.transferTo(start, entry.recordLength, outChannel);
+            }
+            outChannel.force(true);
+        }
+        // Compaction only moves records, so the reloaded entries keep their revisions
+        Map<String, Long> revisions = new HashMap<>(entries.size() * 2);
+        for (Entry entry : entries.values()) {
+            revisions.put(entry.documentId, entry.revision);
+        }
+        closeQuietly();
+        if (!compacted.renameTo(file)) {
+            throw new IOException("Could not replace " + file + " with compacted index");
+        }
+        open();
+        for (Entry entry : entries.values()) {
+            Long revision = revisions.get(entry.documentId);
+            if (revision != null) {
+                entry.revision = revision;
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (raf != null) {
+                raf.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing descriptor index", e);
+        }
+        raf = null;
+        channel = null;
+        mapped = null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Map<String, String> readAttributes(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 8) {
+            throw new BufferUnderflowException();
+        }
+        Map<String, String> attributes = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            attributes.put(readString(buffer), readString(buffer));
+        }
+        return attributes;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
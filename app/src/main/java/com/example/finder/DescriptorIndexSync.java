@@ -0,0 +1,217 @@
+package com.example.finder;
+
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps a DescriptorStore current by listening to items newer than the store's high watermark,
+// so a warm start only transfers the documents added since the last session. Deletions and edits
+// of older items never reach that listener, so the store is also reconciled against a full read
+// of the collection once RECONCILE_INTERVAL_MS has passed since the last complete sync.
+public class DescriptorIndexSync {
+
+    private static final String TAG = "DescriptorIndexSync";
+    private static final long RECONCILE_INTERVAL_MS = 24L * 60 * 60 * 1000;
+
+    private final FirebaseFirestore firestore;
+    private final DescriptorStore index;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private ListenerRegistration registration;
+
+    public DescriptorIndexSync(FirebaseFirestore firestore, DescriptorStore index) {
+        this.firestore = firestore;
+        this.index = index;
+    }
+
+    public void start() {
+        if (registration != null) {
+            return;
+        }
+        // An unsynced store may hold any subset of an interrupted first snapshot, so its
+        // watermark says nothing about what is missing; listen to everything again
+        long watermark = index.isSynced() ? index.getHighWatermark() : 0;
+        boolean fullListen = watermark == 0;
+        Query query = firestore.collection("items").orderBy("timestamp");
+        if (watermark > 0) {
+            // Re-read the newest indexed millisecond in case it held more than one document
+            query = query.whereGreaterThanOrEqualTo("timestamp",
+                    new Timestamp(watermark / 1000, (int) (watermark % 1000) * 1_000_000));
+        }
+        registration = query.addSnapshotListener(diskExecutor, (snapshots, e) -> {
+            if (e != null) {
+                Log.e(TAG, "Descriptor index sync failed", e);
+                return;
+            }
+            if (snapshots == null) {
+                return;
+            }
+            for (DocumentChange change : snapshots.getDocumentChanges()) {
+                DocumentSnapshot document = change.getDocument();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    index.removeDocument(document.getId());
+                } else {
+                    apply(document, change.getType() == DocumentChange.Type.MODIFIED);
+                }
+            }
+            // The first server snapshot of the unfiltered query holds the whole collection
+            if (fullListen && !snapshots.getMetadata().isFromCache() && !index.isSynced()) {
+                index.markSynced(System.currentTimeMillis());
+            }
+        });
+
+        if (index.isSynced() && System.currentTimeMillis() - index.getLastSynced() > RECONCILE_INTERVAL_MS) {
+            firestore.collection("items").get(Source.SERVER)
+                    .addOnSuccessListener(diskExecutor, this::reconcile)
+                    .addOnFailureListener(diskExecutor, e -> Log.w(TAG, "Descriptor index reconcile failed", e));
+        }
+    }
+
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    // Drops documents deleted since they were indexed and rewrites ones edited in place
+    private void reconcile(QuerySnapshot snapshot) {
+        Map<String, DescriptorStore.Entry> stored = new HashMap<>();
+        for (DescriptorStore.Entry entry : index.entries()) {
+            stored.put(entry.getDocumentId(), entry);
+        }
+        Set<String> present = new HashSet<>();
+        int changed = 0;
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            present.add(document.getId());
+            if (!matches(stored, document)) {
+                index.removeDocument(document.getId());
+                apply(document, true);
+                changed++;
+            }
+        }
+        Set<String> removed = new HashSet<>();
+        for (String key : stored.keySet()) {
+            String documentId = DescriptorIndex.documentIdOf(key);
+            if (!present.contains(documentId) && removed.add(documentId)) {
+                index.removeDocument(documentId);
+            }
+        }
+        index.markSynced(System.currentTimeMillis());
+        Log.d(TAG, "Reconciled descriptor index: " + changed + " rewritten, " + removed.size() + " removed");
+    }
+
+    // True when every photo of the document is stored with current fields and nothing is left
+    // over from photos the item no longer has
+    private static boolean matches(Map<String, DescriptorStore.Entry> stored, DocumentSnapshot document) {
+        List<Object> descriptorSets = descriptorSetsOf(document);
+        if (stored.containsKey(DescriptorIndex.keyFor(document.getId(), descriptorSets.size()))) {
+            return false;
+        }
+        for (int i = 0; i < descriptorSets.size(); i++) {
+            DescriptorStore.Entry entry = stored.get(DescriptorIndex.keyFor(document.getId(), i));
+            if (entry == null) {
+                // apply() skips descriptor sets it can't decode, so those are never stored
+                if (DescriptorCodec.encodedFromFirestore(descriptorSets.get(i)) != null) {
+                    return false;
+                }
+            } else if (!matches(entry, document)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Compares the fields search reads; descriptors only change together with the photo URL
+    private static boolean matches(DescriptorStore.Entry entry, DocumentSnapshot document) {
+        Map<String, String> attributes = attributesOf(document);
+        return nonNull(entry.getImageUrl()).equals(nonNull(document.getString("imageUrl")))
+                && nonNull(entry.getDescription()).equals(nonNull(document.getString("description")))
+                && Objects.equals(entry.getGeohash(), attributes.get(DescriptorStore.ATTRIBUTE_GEOHASH))
+                && Objects.equals(entry.getCategory(), attributes.get(DescriptorStore.ATTRIBUTE_CATEGORY))
+                && Objects.equals(entry.getAttribute(DescriptorStore.ATTRIBUTE_DATE_DAY),
+                        attributes.get(DescriptorStore.ATTRIBUTE_DATE_DAY))
+                && Objects.equals(entry.getThumbnailUrl(), attributes.get(DescriptorStore.ATTRIBUTE_THUMBNAIL_URL));
+    }
+
+    // The index stores missing strings as ""
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    private void apply(DocumentSnapshot document, boolean modified) {
+        // Local writes carry no server timestamp yet; they are delivered again once committed
+        if (document.getMetadata().hasPendingWrites()) {
+            return;
+        }
+        Timestamp timestamp = document.getTimestamp("timestamp");
+        if (timestamp == null) {
+            return;
+        }
+        long millis = timestamp.getSeconds() * 1000 + timestamp.getNanoseconds() / 1_000_000;
+        if (!modified && index.isCurrent(document.getId(), millis)) {
+            return;
+        }
+        List<Object> descriptorSets = descriptorSetsOf(document);
+        Map<String, String> attributes = attributesOf(document);
+        for (int i = 0; i < descriptorSets.size(); i++) {
+            byte[] encoded = DescriptorCodec.encodedFromFirestore(descriptorSets.get(i));
+            if (encoded != null) {
+                index.put(DescriptorIndex.keyFor(document.getId(), i), millis,
+                        document.getString("imageUrl"), document.getString("description"), attributes, encoded);
+            }
+        }
+        index.removePhotosFrom(document.getId(), descriptorSets.size());
+    }
+
+    static Map<String, String> attributesOf(DocumentSnapshot document) {
+        Map<String, String> attributes = new HashMap<>();
+        String geohash = document.getString("geohash");
+        if (geohash != null) {
+            attributes.put(DescriptorStore.ATTRIBUTE_GEOHASH, geohash);
+        }
+        String category = document.getString("category");
+        if (category != null) {
+            attributes.put(DescriptorStore.ATTRIBUTE_CATEGORY, category);
+        }
+        Long dateDay = document.getLong("dateDay");
+        if (dateDay != null) {
+            attributes.put(DescriptorStore.ATTRIBUTE_DATE_DAY, Long.toString(dateDay));
+        }
+        String thumbnailUrl = document.getString("thumbnailUrl");
+        if (thumbnailUrl != null) {
+            attributes.put(DescriptorStore.ATTRIBUTE_THUMBNAIL_URL, thumbnailUrl);
+        }
+        return attributes;
+    }
+
+    // Multi-photo items carry "descriptorSets"; older items only have "descriptors"
+    static List<Object> descriptorSetsOf(DocumentSnapshot document) {
+        Object sets = document.get("descriptorSets");
+        if (sets instanceof List && !((List<?>) sets).isEmpty()) {
+            return new ArrayList<>((List<?>) sets);
+        }
+        List<Object> single = new ArrayList<>();
+        Object descriptors = document.get("descriptors");
+        if (descriptors != null) {
+            single.add(descriptors);
+        }
+        return single;
+    }
+}
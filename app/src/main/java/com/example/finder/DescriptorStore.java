@@ -0,0 +1,102 @@
+package com.example.finder;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+import java.util.Map;
+
+// Where item descriptors live for matching. Entries are keyed by DescriptorIndex.keyFor(), so a
+// multi-photo item has one entry per photo. DescriptorIndex keeps them in a memory-mapped file;
+// InMemoryDescriptorStore keeps them on the heap for tests and benchmarks.
+public interface DescriptorStore {
+
+    // Item fields kept beside the descriptors so searches can be filtered without Firestore
+    String ATTRIBUTE_GEOHASH = "geohash";
+    String ATTRIBUTE_CATEGORY = "category";
+    String ATTRIBUTE_DATE_DAY = "dateDay";
+    // Small variant of the item photo for result lists; absent for items uploaded without one
+    String ATTRIBUTE_THUMBNAIL_URL = "thumbnailUrl";
+
+    interface Entry {
+        String getDocumentId();
+
+        long getTimestamp();
+
+        String getImageUrl();
+
+        String getDescription();
+
+        String getAttribute(String name);
+
+        // Changes every time the entry is written again, so caches derived from its descriptors
+        // can tell they are stale; only meaningful within one process
+        long getRevision();
+
+        default String getGeohash() {
+            return getAttribute(ATTRIBUTE_GEOHASH);
+        }
+
+        default String getCategory() {
+            return getAttribute(ATTRIBUTE_CATEGORY);
+        }
+
+        default String getThumbnailUrl() {
+            return getAttribute(ATTRIBUTE_THUMBNAIL_URL);
+        }
+
+        default long getDateDay() {
+            String day = getAttribute(ATTRIBUTE_DATE_DAY);
+            if (day == null) {
+                return ItemDates.UNKNOWN_DAY;
+            }
+            try {
+                return Long.parseLong(day);
+            } catch (NumberFormatException e) {
+                return ItemDates.UNKNOWN_DAY;
+            }
+        }
+    }
+
+    int size();
+
+    // Newest timestamp stored so far, in milliseconds; used as the delta sync cursor
+    long getHighWatermark();
+
+    // True once a complete snapshot of the items collection has landed. Until then the store may
+    // be missing items, so searches must read the repository instead.
+    boolean isSynced();
+
+    // Record that the store matched the whole collection at this time
+    void markSynced(long timeMillis);
+
+    // When the store was last checked against the whole collection, 0 if never
+    long getLastSynced();
+
+    // True if the entry is already stored at this timestamp or newer
+    boolean isCurrent(String key, long timestamp);
+
+    List<Entry> entries();
+
+    // Entries in one category partition; null returns every entry
+    List<Entry> entries(String category);
+
+    void put(String key, long timestamp, String imageUrl, String description,
+             Map<String, String> attributes, byte[] encodedDescriptors);
+
+    // Remove every photo stored for the document
+    default void removeDocument(String documentId) {
+        removePhotosFrom(documentId, 0);
+    }
+
+    // Remove the document's photos at index photoCount and above, left behind when an item is
+    // rewritten with fewer photos
+    void removePhotosFrom(String documentId, int photoCount);
+
+    // Null if the entry has been superseded or removed since it was listed
+    ItemFeatures readFeatures(Entry entry);
+
+    default Mat readDescriptors(Entry entry) {
+        ItemFeatures features = readFeatures(entry);
+        return features != null ? features.getDescriptors() : null;
+    }
+}
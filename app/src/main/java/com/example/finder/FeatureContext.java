@@ -0,0 +1,118 @@
+package com.example.finder;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDMatch;
+import org.opencv.core.MatOfKeyPoint;
+import org.opencv.core.MatOfPoint2f;
+import org.opencv.features2d.DescriptorMatcher;
+import org.opencv.features2d.ORB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-thread OpenCV state for feature extraction and matching: one configured ORB, one matcher
+// and the scratch Mats they write into. Reusing them avoids a fresh native allocation per call,
+// and release() frees everything deterministically instead of leaving it to Mat.finalize().
+public class FeatureContext {
+
+    private static final int ORB_FEATURES = 500;
+
+    private static final ThreadLocal<FeatureContext> CURRENT = new ThreadLocal<>();
+
+    public static FeatureContext get() {
+        FeatureContext context = CURRENT.get();
+        if (context == null) {
+            context = new FeatureContext();
+            CURRENT.set(context);
+        }
+        return context;
+    }
+
+    // Free the calling thread's context, if it has one; the next get() builds a new one
+    public static void releaseCurrent() {
+        FeatureContext context = CURRENT.get();
+        if (context != null) {
+            CURRENT.remove();
+            context.release();
+        }
+    }
+
+    // Threads from this factory release their context when they exit, e.g. on executor shutdown
+    public static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> new Thread(() -> {
+            try {
+                runnable.run();
+            } finally {
+                releaseCurrent();
+            }
+        }, name + "-" + count.incrementAndGet());
+    }
+
+    final ORB orb;
+    final DescriptorMatcher matcher;
+    final Mat noMask = new Mat();
+    final MatOfKeyPoint keypoints = new MatOfKeyPoint();
+    final MatOfDMatch matches = new MatOfDMatch();
+    final List<MatOfDMatch> knnMatches = new ArrayList<>();
+    final MatOfPoint2f srcPoints = new MatOfPoint2f();
+    final MatOfPoint2f dstPoints = new MatOfPoint2f();
+    final Mat inlierMask = new Mat();
+
+    private float[] keypointScratch = new float[0];
+    private float[] srcPointScratch = new float[0];
+    private float[] dstPointScratch = new float[0];
+
+    private FeatureContext() {
+        orb = ORB.create(ORB_FEATURES);
+        matcher = DescriptorMatcher.create(DescriptorMatcher.BRUTEFORCE_HAMMING);
+    }
+
+    // Reusable float buffers for Mat.get()/put(); contents are undefined. Those calls throw
+    // unless the array length is a multiple of the Mat's channel count, so each channel count
+    // has its own buffer and every buffer holds whole elements. Beyond that an oversized buffer
+    // is fine: get() and put() copy no more than the Mat holds.
+    float[] keypointFloats(int count) {
+        keypointScratch = ensureFloats(keypointScratch, count, FeatureExtractor.KEYPOINT_CHANNELS);
+        return keypointScratch;
+    }
+
+    // CV_32FC2 point buffers for the two sides of a homography
+    float[] srcPointFloats(int count) {
+        srcPointScratch = ensureFloats(srcPointScratch, count, 2);
+        return srcPointScratch;
+    }
+
+    float[] dstPointFloats(int count) {
+        dstPointScratch = ensureFloats(dstPointScratch, count, 2);
+        return dstPointScratch;
+    }
+
+    private static float[] ensureFloats(float[] buffer, int count, int channels) {
+        return buffer.length >= count * channels ? buffer : new float[count * channels];
+    }
+
+    // knnMatch allocates a MatOfDMatch per query row; free them as soon as they have been read
+    void releaseKnnMatches() {
+        for (MatOfDMatch m : knnMatches) {
+            m.release();
+        }
+        knnMatches.clear();
+    }
+
+    private void release() {
+        releaseKnnMatches();
+        noMask.release();
+        keypoints.release();
+        matches.release();
+        srcPoints.release();
+        dstPoints.release();
+        inlierMask.release();
+        matcher.clear();
+        // The Java Algorithm API has no explicit delete; clear() drops ORB's internal buffers
+        // now and the native object goes with this context on the next GC
+        orb.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.finder;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfKeyPoint;
+
+// ORB feature extraction shared by item submission and search. Must not run on the main thread.
+public class FeatureExtractor {
+
+    // MatOfKeyPoint rows are CV_32FC7: x, y, size, angle, response, octave, class_id
+    static final int KEYPOINT_CHANNELS = 7;
+
+    private FeatureExtractor() {
+    }
+
+    // Expects a single-channel image, e.g. from WorkingImageDecoder
+    public static ItemFeatures extract(Mat gray) {
+        FeatureContext context = FeatureContext.get();
+        // The descriptors are handed to the caller; everything else is per-thread scratch
+        Mat descriptors = new Mat();
+        context.orb.detectAndCompute(gray, context.noMask, context.keypoints, descriptors);
+        return new ItemFeatures(descriptors, keypointPositions(context, context.keypoints));
+    }
+
+    static float[] keypointPositions(FeatureContext context, MatOfKeyPoint keypoints) {
+        int count = keypoints.rows();
+        float[] raw = context.keypointFloats(count);
+        if (count > 0) {
+            keypoints.get(0, 0, raw);
+        }
+        float[] positions = new float[count * 2];
+        for (int i = 0; i < count; i++) {
+            positions[i * 2] = raw[i * KEYPOINT_CHANNELS];
+            positions[i * 2 + 1] = raw[i * KEYPOINT_CHANNELS + 1];
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.finder;
+
+import android.app.Application;
+import android.util.Log;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
+import com.google.firebase.firestore.PersistentCacheSettings;
+
+public class FinderApplication extends Application {
+
+    private static final String TAG = "FinderApplication";
+
+    // On-disk Firestore cache. Large enough to hold item metadata and descriptors for offline
+    // browsing and search; Firestore evicts least recently used documents beyond it.
+    static final long FIRESTORE_CACHE_SIZE_BYTES = 200L * 1024 * 1024;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        configureFirestore();
+    }
+
+    // Settings must be applied before the first Firestore call anywhere in the process
+    private static void configureFirestore() {
+        FirebaseFirestoreSettings settings = new FirebaseFirestoreSettings.Builder()
+                .setLocalCacheSettings(PersistentCacheSettings.newBuilder()
+                        .setSizeBytes(FIRESTORE_CACHE_SIZE_BYTES)
+                        .build())
+                .build();
+        try {
+            FirebaseFirestore.getInstance().setFirestoreSettings(settings);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Firestore was used before its settings could be applied", e);
+        }
+    }
+}
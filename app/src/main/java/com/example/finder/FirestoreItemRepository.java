@@ -0,0 +1,131 @@
+package com.example.finder;
+
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ItemRepository over the "items" collection. The filter is pushed into the queries; a location
+// filter becomes one range query per covering geohash cell, each paged independently.
+public class FirestoreItemRepository implements ItemRepository {
+
+    private static final String TAG = "FirestoreItemRepository";
+    private static final String COLLECTION = "items";
+
+    private final FirebaseFirestore firestore;
+
+    public FirestoreItemRepository(FirebaseFirestore firestore) {
+        this.firestore = firestore;
+    }
+
+    @Override
+    public void scan(SearchFilter filter, int pageSize, Executor executor, ScanListener listener) {
+        List<Query> queries = queriesFor(filter);
+        Scan scan = new Scan(pageSize, executor, listener, queries.size());
+        for (Query query : queries) {
+            scan.fetchPage(query, null);
+        }
+    }
+
+    // Category is always an equality filter. The date range is pushed down too unless the geohash
+    // already holds the one range Firestore allows per query, in which case callers check it per
+    // item through SearchFilter.matches(). A category combined with any of the three orderings
+    // needs its composite index from firestore.indexes.json.
+    private List<Query> queriesFor(SearchFilter filter) {
+        Query items = firestore.collection(COLLECTION);
+        if (filter.getCategory() != null) {
+            items = items.whereEqualTo("category", filter.getCategory());
+        }
+        if (!filter.hasLocation()) {
+            if (filter.hasDateRange()) {
+                return Collections.singletonList(items
+                        .whereGreaterThanOrEqualTo("dateDay", filter.getFromDay())
+                        .whereLessThanOrEqualTo("dateDay", filter.getToDay())
+                        .orderBy("dateDay", Query.Direction.DESCENDING));
+            }
+            return Collections.singletonList(items.orderBy("timestamp", Query.Direction.DESCENDING));
+        }
+        List<Query> queries = new ArrayList<>();
+        for (String prefix : Geohash.coveringPrefixes(filter.getLatitude(), filter.getLongitude(), filter.getRadiusMeters())) {
+            queries.add(items.orderBy("geohash").startAt(prefix).endAt(prefix + "\uf8ff"));
+        }
+        return queries;
+    }
+
+    private static class Scan {
+        private final int pageSize;
+        private final Executor executor;
+        private final ScanListener listener;
+        private final AtomicInteger openStreams;
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        Scan(int pageSize, Executor executor, ScanListener listener, int streams) {
+            this.pageSize = pageSize;
+            this.executor = executor;
+            this.listener = listener;
+            this.openStreams = new AtomicInteger(streams);
+        }
+
+        void fetchPage(Query base, DocumentSnapshot lastDocument) {
+            if (stopped.get()) {
+                return;
+            }
+            Query query = base.limit(pageSize);
+            if (lastDocument != null) {
+                query = query.startAfter(lastDocument);
+            }
+            query.get()
+                    .addOnSuccessListener(executor, page -> {
+                        if (stopped.get()) {
+                            return;
+                        }
+                        List<DocumentSnapshot> documents = page.getDocuments();
+                        List<ItemRecord> items = new ArrayList<>(documents.size());
+                        for (DocumentSnapshot document : documents) {
+                            items.add(toRecord(document));
+                        }
+                        if (!listener.onPage(items)) {
+                            stopped.set(true);
+                            return;
+                        }
+                        if (documents.size() == pageSize) {
+                            fetchPage(base, documents.get(documents.size() - 1));
+                        } else if (openStreams.decrementAndGet() == 0) {
+                            listener.onComplete();
+                        }
+                    })
+                    .addOnFailureListener(executor, e -> {
+                        Log.e(TAG, "Error fetching items page", e);
+                        if (stopped.compareAndSet(false, true)) {
+                            listener.onError(e);
+                        }
+                    });
+        }
+    }
+
+    static ItemRecord toRecord(DocumentSnapshot document) {
+        List<byte[]> descriptorSets = new ArrayList<>();
+        for (Object set : DescriptorIndexSync.descriptorSetsOf(document)) {
+            byte[] encoded = DescriptorCodec.encodedFromFirestore(set);
+            if (encoded != null) {
+                descriptorSets.add(encoded);
+            }
+        }
+        Timestamp timestamp = document.getTimestamp("timestamp");
+        Long dateDay = document.getLong("dateDay");
+        return new ItemRecord(document.getId(),
+                timestamp != null ? timestamp.getSeconds() * 1000 + timestamp.getNanoseconds() / 1_000_000 : 0,
+                document.getString("imageUrl"), document.getString("thumbnailUrl"), document.getString("description"),
+                document.getString("category"), dateDay != null ? dateDay : ItemDates.UNKNOWN_DAY,
+                document.getString("geohash"), descriptorSets);
+    }
+}
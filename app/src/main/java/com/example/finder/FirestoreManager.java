@@ -3,13 +3,18 @@ package com.example.finder;
 import android.graphics.Bitmap;
 import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class FirestoreManager {
@@ -26,6 +31,7 @@ public class FirestoreManager {
         // Example fields, adjust as per your data model
         imageData.put("imageUrl", "example_image_url");
         imageData.put("description", "Example image description");
+        imageData.put("timestamp", FieldValue.serverTimestamp());
 
         firestore.collection("images")
                 .add(imageData)
@@ -39,19 +45,43 @@ public class FirestoreManager {
                 });
     }
 
-    public void fetchImages() {
-        // Fetch images from Firestore, if needed
-        firestore.collection("images")
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            Log.d("FirestoreManager", document.getId() + " => " + document.getData());
-                            // Handle retrieved documents
+    public interface PageCallback {
+        // Called with the cached copy of the page first, when there is one, then again with the
+        // server's copy once it arrives. fromCache tells the two apart.
+        void onPage(List<DocumentSnapshot> documents, boolean fromCache);
+
+        // The server could not be reached after a cached page was delivered: that cached copy
+        // is final for this fetch, and paging can continue from its last document
+        void onCachedPageFinal(Exception e);
+
+        void onError(Exception e);
+    }
+
+    // Fetch one page of a collection, newest first, starting after the given cursor (null for
+    // the first page). Only the requested page is read, however large the collection grows.
+    // The local cache answers first so browsing works offline; the server copy revalidates it.
+    public void fetchPage(String collection, @Nullable DocumentSnapshot after, int limit, PageCallback callback) {
+        Query pageQuery = firestore.collection(collection)
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(limit);
+        Query query = after != null ? pageQuery.startAfter(after) : pageQuery;
+        query.get(Source.CACHE).addOnCompleteListener(cached -> {
+            boolean servedFromCache = cached.isSuccessful() && !cached.getResult().isEmpty();
+            if (servedFromCache) {
+                callback.onPage(cached.getResult().getDocuments(), true);
+            }
+            query.get(Source.SERVER)
+                    .addOnSuccessListener(snapshot -> callback.onPage(snapshot.getDocuments(), false))
+                    .addOnFailureListener(e -> {
+                        if (servedFromCache) {
+                            // Offline: the cached page stands until the next refresh
+                            Log.w("FirestoreManager", "Could not revalidate cached page", e);
+                            callback.onCachedPageFinal(e);
+                            return;
                         }
-                    } else {
-                        Log.e("FirestoreManager", "Error getting documents: ", task.getException());
-                    }
-                });
+                        Log.e("FirestoreManager", "Error getting documents: ", e);
+                        callback.onError(e);
+                    });
+        });
     }
 }
@@ -0,0 +1,158 @@
+package com.example.finder;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per-stage latency histograms for the live camera search, so a device that misses its frame
+// budget shows which stage is responsible. Each stage keeps a log-linear histogram of durations
+// in microseconds (32 buckets per power of two, so percentiles are within about 2%). record() is
+// lock-free and allocation-free and may be called from any thread; percentiles are computed on
+// demand.
+public class FrameMetrics {
+
+    private static final String TAG = "FrameMetrics";
+
+    // onCameraFrame on the camera thread: handing the frame to the analyzer and returning it
+    public static final int CAMERA = 0;
+    // FeatureExtractor.extract on an analyzed frame
+    public static final int EXTRACT = 1;
+    // Waiting for the search of an analyzed frame to complete or time out
+    public static final int MATCH = 2;
+    // One analyzed frame from start to finish
+    public static final int ANALYSIS = 3;
+    // Time between two consecutive camera frames
+    public static final int FRAME_INTERVAL = 4;
+    public static final int STAGE_COUNT = 5;
+
+    private static final String[] STAGE_NAMES = {"camera", "extract", "match", "analysis", "frame"};
+
+    // Values below 2^SUB_BUCKET_BITS us get a bucket each; above, each power of two is split
+    // into SUB_BUCKETS buckets. Durations are clamped to 2^MAX_BITS us (about 35 minutes).
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int MAX_BITS = 31;
+    private static final int BUCKETS = (1 << SUB_BUCKET_BITS) + (MAX_BITS - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(STAGE_COUNT * BUCKETS);
+    private final AtomicLongArray counts = new AtomicLongArray(STAGE_COUNT);
+    private final AtomicLongArray sums = new AtomicLongArray(STAGE_COUNT);
+    private final AtomicLongArray maxima = new AtomicLongArray(STAGE_COUNT);
+    private final AtomicLong lastFrameNanos = new AtomicLong();
+
+    public void record(int stage, long durationNanos) {
+        if (stage < 0 || stage >= STAGE_COUNT || durationNanos < 0) {
+            return;
+        }
+        long micros = durationNanos / 1000;
+        buckets.incrementAndGet(stage * BUCKETS + bucketOf(micros));
+        counts.incrementAndGet(stage);
+        sums.addAndGet(stage, micros);
+        long max;
+        while (micros > (max = maxima.get(stage)) && !maxima.compareAndSet(stage, max, micros)) {
+            // Another thread raised the maximum; retry against the new value
+        }
+    }
+
+    // Marks a camera frame as delivered and records FRAME_INTERVAL
+    public void frameDelivered(long nowNanos) {
+        long previous = lastFrameNanos.getAndSet(nowNanos);
+        if (previous != 0) {
+            record(FRAME_INTERVAL, nowNanos - previous);
+        }
+    }
+
+    public long getCount(int stage) {
+        return counts.get(stage);
+    }
+
+    public double getMeanMillis(int stage) {
+        long count = counts.get(stage);
+        return count == 0 ? 0 : sums.get(stage) / 1000.0 / count;
+    }
+
+    public double getMaxMillis(int stage) {
+        return maxima.get(stage) / 1000.0;
+    }
+
+    // Duration at the percentile (in (0, 100]) in milliseconds, 0 if nothing was recorded
+    public double getPercentileMillis(int stage, double percentile) {
+        long count = 0;
+        int base = stage * BUCKETS;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(base + i);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(base + i);
+            if (seen >= rank) {
+                return Math.min(bucketMidpoint(i), maxima.get(stage)) / 1000.0;
+            }
+        }
+        return getMaxMillis(stage);
+    }
+
+    // Average camera frames per second over everything recorded since the last reset
+    public double getFps() {
+        double interval = getMeanMillis(FRAME_INTERVAL);
+        return interval == 0 ? 0 : 1000.0 / interval;
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            counts.set(stage, 0);
+            sums.set(stage, 0);
+            maxima.set(stage, 0);
+        }
+        lastFrameNanos.set(0);
+    }
+
+    public void logSummary() {
+        Log.i(TAG, summary());
+    }
+
+    // FPS on the first line, then p50/p95/p99/max for every stage that has samples
+    public String summary() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "%.1f FPS", getFps()));
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            if (stage == FRAME_INTERVAL || counts.get(stage) == 0) {
+                continue;
+            }
+            sb.append('\n').append(String.format(Locale.US, "%-8s p50 %6.1f  p95 %6.1f  p99 %6.1f  max %6.1f ms",
+                    STAGE_NAMES[stage], getPercentileMillis(stage, 50), getPercentileMillis(stage, 95),
+                    getPercentileMillis(stage, 99), getMaxMillis(stage)));
+        }
+        return sb.toString();
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < (1 << SUB_BUCKET_BITS)) {
+            return (int) micros;
+        }
+        if (micros >= (1L << MAX_BITS)) {
+            return BUCKETS - 1;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = msb - (SUB_BUCKET_BITS - 1);
+        return (1 << SUB_BUCKET_BITS) + (shift - 1) * SUB_BUCKETS + (int) ((micros >> shift) - SUB_BUCKETS);
+    }
+
+    static long bucketMidpoint(int bucket) {
+        if (bucket < (1 << SUB_BUCKET_BITS)) {
+            return bucket;
+        }
+        int k = bucket - (1 << SUB_BUCKET_BITS);
+        int shift = k / SUB_BUCKETS + 1;
+        long low = (long) (k % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return low + (1L << shift) / 2;
+    }
+}
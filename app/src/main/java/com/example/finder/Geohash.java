@@ -0,0 +1,150 @@
+package com.example.finder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Base-32 geohash encoding. Items store a full-precision hash; a radius search is answered by the
+// handful of shorter prefixes whose cells cover the circle, then refined by exact distance.
+public final class Geohash {
+
+    public static final int MAX_PRECISION = 9;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private Geohash() {
+    }
+
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, MAX_PRECISION);
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int index = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    index = index * 2 + 1;
+                    minLon = mid;
+                } else {
+                    index = index * 2;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    index = index * 2 + 1;
+                    minLat = mid;
+                } else {
+                    index = index * 2;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(index));
+                bit = 0;
+                index = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    // Centre of the hash's cell as {latitude, longitude}; null if the hash is not valid base-32
+    public static double[] decode(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int index = BASE32.indexOf(hash.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            for (int shift = 4; shift >= 0; shift--) {
+                int bit = (index >> shift) & 1;
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (bit == 1) {
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (bit == 1) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{(minLat + maxLat) / 2, (minLon + maxLon) / 2};
+    }
+
+    // Prefixes whose cells together cover every point within radiusMeters of the centre: the
+    // longest precision whose cell is at least as large as the radius, plus its eight neighbours
+    public static List<String> coveringPrefixes(double latitude, double longitude, double radiusMeters) {
+        int precision = 1;
+        while (precision < MAX_PRECISION) {
+            double[] cell = cellSizeMeters(precision + 1, latitude);
+            if (cell[0] < radiusMeters || cell[1] < radiusMeters) {
+                break;
+            }
+            precision++;
+        }
+
+        double latStep = cellDegrees(precision)[0];
+        double lonStep = cellDegrees(precision)[1];
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (int dy = -1; dy <= 1; dy++) {
+            double lat = Math.max(-90, Math.min(89.999999, latitude + dy * latStep));
+            for (int dx = -1; dx <= 1; dx++) {
+                double lon = longitude + dx * lonStep;
+                // Wrap across the antimeridian
+                if (lon >= 180) {
+                    lon -= 360;
+                } else if (lon < -180) {
+                    lon += 360;
+                }
+                prefixes.add(encode(lat, lon, precision));
+            }
+        }
+        return new ArrayList<>(prefixes);
+    }
+
+    // Great-circle distance between two points
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // {height, width} of a cell in degrees
+    private static double[] cellDegrees(int precision) {
+        int bits = precision * 5;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+        return new double[]{180.0 / (1L << latBits), 360.0 / (1L << lonBits)};
+    }
+
+    // {height, width} of a cell in metres at the given latitude
+    private static double[] cellSizeMeters(int precision, double latitude) {
+        double[] degrees = cellDegrees(precision);
+        return new double[]{degrees[0] * METERS_PER_DEGREE,
+                degrees[1] * METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude))};
+    }
+}
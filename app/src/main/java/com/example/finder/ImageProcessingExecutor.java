@@ -0,0 +1,170 @@
+package com.example.finder;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// App-wide executor for decoding and feature extraction. Jobs are tied to a lifecycle owner and
+// cancelled when it is destroyed; at most one job per owner and tag runs at a time, so repeated
+// taps are dropped instead of queueing duplicate work. Callbacks are delivered on the main thread.
+public class ImageProcessingExecutor {
+
+    private static final String TAG = "ImageProcessing";
+
+    private static final int WORKER_COUNT = 2;
+    private static final int QUEUE_CAPACITY = 4;
+
+    private static ImageProcessingExecutor instance;
+
+    public static synchronized ImageProcessingExecutor getInstance() {
+        if (instance == null) {
+            instance = new ImageProcessingExecutor();
+        }
+        return instance;
+    }
+
+    public interface Task<T> {
+        T run(Job job) throws Exception;
+    }
+
+    public interface Callback<T> {
+        void onProgress(int percent);
+
+        void onSuccess(T result);
+
+        void onError(Exception e);
+
+        // A result the task produced after its job was cancelled; release anything it holds
+        default void onDiscarded(T result) {
+        }
+    }
+
+    public class Job {
+        private final String key;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Future<?> future;
+        private volatile Callback<?> callback;
+
+        Job(String key) {
+            this.key = key;
+        }
+
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                Future<?> f = future;
+                if (f != null) {
+                    f.cancel(true);
+                }
+                activeJobs.remove(key, this);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        // Call between pipeline stages so a cancelled job stops before its next expensive step
+        public void throwIfCancelled() {
+            if (cancelled.get()) {
+                throw new CancellationException();
+            }
+        }
+
+        public void publishProgress(int percent) {
+            Callback<?> c = callback;
+            mainHandler.post(() -> {
+                if (!cancelled.get() && c != null) {
+                    c.onProgress(percent);
+                }
+            });
+        }
+    }
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            FeatureContext.threadFactory("image-processing"));
+    private final Map<String, Job> activeJobs = new ConcurrentHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private ImageProcessingExecutor() {
+    }
+
+    public boolean isRunning(LifecycleOwner owner, String tag) {
+        return activeJobs.containsKey(keyFor(owner, tag));
+    }
+
+    // Returns null without running anything if the owner already has a job with this tag in flight
+    public <T> Job submit(LifecycleOwner owner, String tag, Task<T> task, Callback<T> callback) {
+        String key = keyFor(owner, tag);
+        Job job = new Job(key);
+        if (activeJobs.putIfAbsent(key, job) != null) {
+            return null;
+        }
+        job.callback = callback;
+
+        LifecycleEventObserver observer = new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    job.cancel();
+                    source.getLifecycle().removeObserver(this);
+                }
+            }
+        };
+        owner.getLifecycle().addObserver(observer);
+
+        try {
+            job.future = executor.submit(() -> {
+                try {
+                    job.throwIfCancelled();
+                    T result = task.run(job);
+                    finish(job, owner, observer, () -> callback.onSuccess(result), () -> callback.onDiscarded(result));
+                } catch (CancellationException e) {
+                    finish(job, owner, observer, null, null);
+                } catch (Exception e) {
+                    Log.e(TAG, "Image processing job " + tag + " failed", e);
+                    finish(job, owner, observer, () -> callback.onError(e), null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(key, job);
+            owner.getLifecycle().removeObserver(observer);
+            callback.onError(e);
+            return null;
+        }
+        return job;
+    }
+
+    // The job can still be cancelled until the main thread runs this, so the outcome is decided
+    // here: delivery if it is still live, otherwise discard so a finished result isn't leaked
+    private void finish(Job job, LifecycleOwner owner, LifecycleEventObserver observer,
+                        Runnable delivery, Runnable discard) {
+        mainHandler.post(() -> {
+            activeJobs.remove(job.key, job);
+            owner.getLifecycle().removeObserver(observer);
+            Runnable outcome = job.isCancelled() ? discard : delivery;
+            if (outcome != null) {
+                outcome.run();
+            }
+        });
+    }
+
+    private static String keyFor(LifecycleOwner owner, String tag) {
+        return System.identityHashCode(owner) + ":" + tag;
+    }
+}
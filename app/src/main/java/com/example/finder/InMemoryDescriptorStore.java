@@ -0,0 +1,129 @@
+package com.example.finder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Heap-backed DescriptorStore for tests and benchmarks; same semantics as DescriptorIndex
+// without the file
+public class InMemoryDescriptorStore implements DescriptorStore {
+
+    private static class Entry implements DescriptorStore.Entry {
+        private final String documentId;
+        private final long timestamp;
+        private final String imageUrl;
+        private final String description;
+        private final Map<String, String> attributes;
+        private final byte[] payload;
+        private final long revision;
+
+        Entry(String documentId, long timestamp, String imageUrl, String description,
+              Map<String, String> attributes, byte[] payload, long revision) {
+            this.documentId = documentId;
+            this.timestamp = timestamp;
+            this.imageUrl = imageUrl;
+            this.description = description;
+            this.attributes = attributes;
+            this.payload = payload;
+            this.revision = revision;
+        }
+
+        @Override
+        public String getDocumentId() { return documentId; }
+
+        @Override
+        public long getTimestamp() { return timestamp; }
+
+        @Override
+        public String getImageUrl() { return imageUrl; }
+
+        @Override
+        public String getDescription() { return description; }
+
+        @Override
+        public String getAttribute(String name) { return attributes.get(name); }
+
+        @Override
+        public long getRevision() { return revision; }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long highWatermark;
+    private long lastSynced;
+    private long nextRevision;
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getHighWatermark() {
+        return highWatermark;
+    }
+
+    @Override
+    public synchronized boolean isSynced() {
+        return lastSynced > 0;
+    }
+
+    @Override
+    public synchronized void markSynced(long timeMillis) {
+        lastSynced = timeMillis;
+    }
+
+    @Override
+    public synchronized long getLastSynced() {
+        return lastSynced;
+    }
+
+    @Override
+    public synchronized boolean isCurrent(String key, long timestamp) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.timestamp >= timestamp;
+    }
+
+    @Override
+    public synchronized List<DescriptorStore.Entry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    @Override
+    public synchronized List<DescriptorStore.Entry> entries(String category) {
+        if (category == null) {
+            return entries();
+        }
+        List<DescriptorStore.Entry> partition = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (category.equals(entry.getCategory())) {
+                partition.add(entry);
+            }
+        }
+        return partition;
+    }
+
+    @Override
+    public synchronized void put(String key, long timestamp, String imageUrl, String description,
+                                 Map<String, String> attributes, byte[] encodedDescriptors) {
+        entries.put(key, new Entry(key, timestamp, imageUrl, description, new HashMap<>(attributes), encodedDescriptors,
+                ++nextRevision));
+        highWatermark = Math.max(highWatermark, timestamp);
+    }
+
+    @Override
+    public synchronized void removePhotosFrom(String documentId, int photoCount) {
+        entries.keySet().removeIf(key -> DescriptorIndex.documentIdOf(key).equals(documentId)
+                && DescriptorIndex.photoIndexOf(key) >= photoCount);
+    }
+
+    @Override
+    public ItemFeatures readFeatures(DescriptorStore.Entry entry) {
+        synchronized (this) {
+            if (entries.get(entry.getDocumentId()) != entry) {
+                return null;
+            }
+        }
+        return DescriptorCodec.decodeFeatures(((Entry) entry).payload);
+    }
+}
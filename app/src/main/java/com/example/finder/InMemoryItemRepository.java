@@ -0,0 +1,46 @@
+package com.example.finder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Heap-backed ItemRepository for tests and benchmarks
+public class InMemoryItemRepository implements ItemRepository {
+
+    private final List<ItemRecord> items = new ArrayList<>();
+
+    public synchronized void add(ItemRecord item) {
+        items.add(item);
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    @Override
+    public void scan(SearchFilter filter, int pageSize, Executor executor, ScanListener listener) {
+        List<ItemRecord> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(items);
+        }
+        executor.execute(() -> {
+            List<ItemRecord> page = new ArrayList<>(pageSize);
+            for (ItemRecord item : snapshot) {
+                if (filter.getCategory() != null && !filter.getCategory().equals(item.getCategory())) {
+                    continue;
+                }
+                page.add(item);
+                if (page.size() == pageSize) {
+                    if (!listener.onPage(page)) {
+                        return;
+                    }
+                    page = new ArrayList<>(pageSize);
+                }
+            }
+            if (!page.isEmpty() && !listener.onPage(page)) {
+                return;
+            }
+            listener.onComplete();
+        });
+    }
+}
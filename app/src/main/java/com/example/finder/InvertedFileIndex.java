@@ -0,0 +1,191 @@
+package com.example.finder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Inverted file from visual word to the items containing it. Items are scored against a query
+// by TF-IDF weighted histogram intersection, touching only the posting lists of the query's words.
+public class InvertedFileIndex {
+
+    private static final int INITIAL_POSTING_CAPACITY = 8;
+
+    // Bag of words for one image: sorted unique word ids and their L1-normalised frequencies
+    static class WordHistogram {
+        final int[] words;
+        final float[] frequencies;
+
+        WordHistogram(int[] words, float[] frequencies) {
+            this.words = words;
+            this.frequencies = frequencies;
+        }
+
+        static WordHistogram of(int[] wordIds) {
+            int[] sorted = wordIds.clone();
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    unique++;
+                }
+            }
+            int[] words = new int[unique];
+            float[] frequencies = new float[unique];
+            int u = -1;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    words[++u] = sorted[i];
+                }
+                frequencies[u] += 1f / sorted.length;
+            }
+            return new WordHistogram(words, frequencies);
+        }
+    }
+
+    private final int wordCount;
+    private final int[][] postingDocs;
+    private final float[][] postingFrequencies;
+    private final int[] postingSizes;
+    private final int[] documentFrequency;
+
+    private final List<String> ordinalToId = new ArrayList<>();
+    private final List<WordHistogram> ordinalToHistogram = new ArrayList<>();
+    private final Map<String, Integer> idToOrdinal = new HashMap<>();
+    // DescriptorStore.Entry revision each item's histogram was quantized from
+    private final Map<String, Long> idToRevision = new HashMap<>();
+    private int deadCount;
+
+    public InvertedFileIndex(int wordCount) {
+        this.wordCount = wordCount;
+        this.postingDocs = new int[wordCount][];
+        this.postingFrequencies = new float[wordCount][];
+        this.postingSizes = new int[wordCount];
+        this.documentFrequency = new int[wordCount];
+    }
+
+    public synchronized int size() {
+        return idToOrdinal.size();
+    }
+
+    // Revision the item was added with, or -1 when it isn't indexed
+    public synchronized long revisionOf(String documentId) {
+        Long revision = idToRevision.get(documentId);
+        return revision != null ? revision : -1;
+    }
+
+    public synchronized Set<String> documentIds() {
+        return new HashSet<>(idToOrdinal.keySet());
+    }
+
+    public synchronized void add(String documentId, long revision, WordHistogram histogram) {
+        remove(documentId);
+        idToRevision.put(documentId, revision);
+        int ordinal = ordinalToId.size();
+        ordinalToId.add(documentId);
+        ordinalToHistogram.add(histogram);
+        idToOrdinal.put(documentId, ordinal);
+        for (int i = 0; i < histogram.words.length; i++) {
+            int word = histogram.words[i];
+            appendPosting(word, ordinal, histogram.frequencies[i]);
+            documentFrequency[word]++;
+        }
+    }
+
+    public synchronized void remove(String documentId) {
+        Integer ordinal = idToOrdinal.remove(documentId);
+        if (ordinal == null) {
+            return;
+        }
+        idToRevision.remove(documentId);
+        // Postings stay in place and are skipped at query time until the next compaction
+        WordHistogram histogram = ordinalToHistogram.set(ordinal, null);
+        ordinalToId.set(ordinal, null);
+        for (int word : histogram.words) {
+            documentFrequency[word]--;
+        }
+        deadCount++;
+        if (deadCount > idToOrdinal.size()) {
+            compact();
+        }
+    }
+
+    // IDs of the n items sharing the most informative visual words with the query, chosen among
+    // candidates only when that is not null so a search filter never empties the shortlist
+    public synchronized List<String> shortlist(WordHistogram query, int n, Set<String> candidates) {
+        int documentCount = idToOrdinal.size();
+        if (documentCount == 0 || n <= 0) {
+            return new ArrayList<>();
+        }
+        float[] scores = new float[ordinalToId.size()];
+        for (int i = 0; i < query.words.length; i++) {
+            int word = query.words[i];
+            if (word < 0 || word >= wordCount || documentFrequency[word] == 0) {
+                continue;
+            }
+            float idf = (float) Math.log((double) documentCount / documentFrequency[word]);
+            float weight = idf * idf;
+            float queryFrequency = query.frequencies[i];
+            int[] docs = postingDocs[word];
+            float[] frequencies = postingFrequencies[word];
+            for (int p = 0; p < postingSizes[word]; p++) {
+                scores[docs[p]] += weight * Math.min(queryFrequency, frequencies[p]);
+            }
+        }
+
+        PriorityQueue<Integer> best = new PriorityQueue<>(n + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+        for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+            String id = ordinalToId.get(ordinal);
+            if (scores[ordinal] <= 0 || id == null || (candidates != null && !candidates.contains(id))) {
+                continue;
+            }
+            if (best.size() < n) {
+                best.add(ordinal);
+            } else if (scores[ordinal] > scores[best.peek()]) {
+                best.poll();
+                best.add(ordinal);
+            }
+        }
+        List<String> ids = new ArrayList<>(best.size());
+        for (int ordinal : best) {
+            ids.add(ordinalToId.get(ordinal));
+        }
+        return ids;
+    }
+
+    private void appendPosting(int word, int ordinal, float frequency) {
+        int[] docs = postingDocs[word];
+        if (docs == null) {
+            postingDocs[word] = new int[INITIAL_POSTING_CAPACITY];
+            postingFrequencies[word] = new float[INITIAL_POSTING_CAPACITY];
+        } else if (postingSizes[word] == docs.length) {
+            postingDocs[word] = Arrays.copyOf(docs, docs.length * 2);
+            postingFrequencies[word] = Arrays.copyOf(postingFrequencies[word], docs.length * 2);
+        }
+        postingDocs[word][postingSizes[word]] = ordinal;
+        postingFrequencies[word][postingSizes[word]] = frequency;
+        postingSizes[word]++;
+    }
+
+    private void compact() {
+        Map<String, Long> revisions = new HashMap<>(idToRevision);
+        List<String> ids = new ArrayList<>(ordinalToId);
+        List<WordHistogram> histograms = new ArrayList<>(ordinalToHistogram);
+        ordinalToId.clear();
+        ordinalToHistogram.clear();
+        idToOrdinal.clear();
+        idToRevision.clear();
+        Arrays.fill(postingSizes, 0);
+        Arrays.fill(documentFrequency, 0);
+        deadCount = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) != null) {
+                add(ids.get(i), revisions.get(ids.get(i)), histograms.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.finder;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+// Items record the date as typed by the user. For range filters it is also stored as a day number
+// (days since 1970-01-01), which Firestore and the local index can compare directly.
+public final class ItemDates {
+
+    public static final long UNKNOWN_DAY = Long.MIN_VALUE;
+
+    // "yy" comes before "yyyy": it maps two digits into the current century and still reads four
+    // digits literally, whereas "yyyy" would take "03/04/24" as the year 24
+    private static final String[] PATTERNS = {"yyyy-MM-dd", "MM/dd/yy", "MM/dd/yyyy", "dd.MM.yyyy"};
+    // 1900-01-01; anything earlier is a mistyped year, not a real report
+    private static final long EARLIEST_DAY = -25567;
+
+    private ItemDates() {
+    }
+
+    // Day number for a typed date, or UNKNOWN_DAY if it is in none of the accepted formats
+    public static long parseDay(String date) {
+        if (date == null) {
+            return UNKNOWN_DAY;
+        }
+        for (String pattern : PATTERNS) {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            format.setLenient(false);
+            try {
+                Date parsed = format.parse(date.trim());
+                if (parsed != null) {
+                    long day = Math.floorDiv(parsed.getTime(), TimeUnit.DAYS.toMillis(1));
+                    return day >= EARLIEST_DAY ? day : UNKNOWN_DAY;
+                }
+            } catch (ParseException e) {
+                // Try the next pattern
+            }
+        }
+        return UNKNOWN_DAY;
+    }
+
+    public static long today() {
+        return TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+    }
+}
@@ -1,9 +1,9 @@
 package com.example.finder;
 
 import android.Manifest;
+import android.content.ClipData;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
 import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
@@ -31,18 +31,9 @@ import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FieldValue;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
 import org.opencv.android.OpenCVLoader;
-import org.opencv.core.Mat;
-import org.opencv.core.MatOfKeyPoint;
-import org.opencv.features2d.ORB;
-import org.opencv.imgproc.Imgproc;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -52,8 +43,12 @@ public class ItemDetailsActivity extends AppCompatActivity {
 
     private static final int PICK_IMAGE_REQUEST = 1;
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 2;
+    private static final String TAG = "ItemDetailsActivity";
 
-    private Uri selectedImageUri;
+    // Photos picked in ReportItemActivity, passed as an ArrayList<Uri>
+    public static final String EXTRA_IMAGE_URIS = "com.example.finder.EXTRA_IMAGE_URIS";
+
+    private final List<Uri> selectedImageUris = new ArrayList<>();
 
     private ImageButton backButton;
     private Button selectImageButton;
@@ -63,9 +58,8 @@ public class ItemDetailsActivity extends AppCompatActivity {
     private EditText dateEditText;
     private Spinner categorySpinner;
 
-    private FirebaseFirestore firestore;
-    private FirebaseStorage storage;
     private FirebaseAuth auth;
+    private ItemReportPipeline reportPipeline;
 
     private FusedLocationProviderClient fusedLocationClient;
     private LocationCallback locationCallback;
@@ -87,9 +81,8 @@ public class ItemDetailsActivity extends AppCompatActivity {
         }
 
         // Initialize Firebase
-        firestore = FirebaseFirestore.getInstance();
-        storage = FirebaseStorage.getInstance();
         auth = FirebaseAuth.getInstance();
+        reportPipeline = new ItemReportPipeline(this);
 
         // Initialize views
         backButton = findViewById(R.id.backButton);
@@ -109,6 +102,13 @@ public class ItemDetailsActivity extends AppCompatActivity {
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         categorySpinner.setAdapter(adapter);
 
+        // Photos chosen on the report screen
+        ArrayList<Uri> passedUris = getIntent().getParcelableArrayListExtra(EXTRA_IMAGE_URIS);
+        if (passedUris != null && !passedUris.isEmpty()) {
+            selectedImageUris.addAll(passedUris);
+            Glide.with(this).load(selectedImageUris.get(0)).into(selectedImageView);
+        }
+
         // Set onClick listeners
         backButton.setOnClickListener(view -> onBackPressed());
         selectImageButton.setOnClickListener(view -> openGallery());
@@ -133,29 +133,44 @@ public class ItemDetailsActivity extends AppCompatActivity {
 
     private void openGallery() {
         Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
         startActivityForResult(intent, PICK_IMAGE_REQUEST);
     }
 
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null && data.getData() != null) {
-            selectedImageUri = data.getData();
-            try {
-                Bitmap bitmap = MediaStore.Images.Media.getBitmap(getContentResolver(), selectedImageUri);
-                Glide.with(this).load(bitmap).into(selectedImageView);
-            } catch (IOException e) {
-                e.printStackTrace();
+        if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null) {
+            List<Uri> picked = pickedUris(data);
+            if (!picked.isEmpty()) {
+                selectedImageUris.clear();
+                selectedImageUris.addAll(picked);
+                // Glide decodes off the main thread, sampled down to the view's size
+                Glide.with(this).load(selectedImageUris.get(0)).into(selectedImageView);
             }
         }
     }
 
+    // A multi-select gallery returns ClipData; a single pick comes back as getData()
+    static List<Uri> pickedUris(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        ClipData clipData = data.getClipData();
+        if (clipData != null) {
+            for (int i = 0; i < clipData.getItemCount(); i++) {
+                uris.add(clipData.getItemAt(i).getUri());
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        return uris;
+    }
+
     private void submitItemDetails() {
         String description = descriptionEditText.getText().toString().trim();
         String date = dateEditText.getText().toString().trim();
         String category = categorySpinner.getSelectedItem().toString();
 
-        if (description.isEmpty() || date.isEmpty() || category.isEmpty() || selectedImageUri == null) {
+        if (description.isEmpty() || date.isEmpty() || category.isEmpty() || selectedImageUris.isEmpty()) {
             Toast.makeText(this, "Please fill all fields and select an image.", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -168,61 +183,55 @@ public class ItemDetailsActivity extends AppCompatActivity {
 
         String userId = currentUser.getUid();
 
-        // Convert the bitmap to a Mat object
-        Bitmap bitmap = null;
-        try {
-            bitmap = MediaStore.Images.Media.getBitmap(getContentResolver(), selectedImageUri);
-        } catch (IOException e) {
-            e.printStackTrace();
+        Map<String, Object> item = new HashMap<>();
+        item.put("description", description);
+        item.put("date", date);
+        item.put("category", category);
+        long dateDay = ItemDates.parseDay(date);
+        if (dateDay != ItemDates.UNKNOWN_DAY) {
+            item.put("dateDay", dateDay);
+        }
+        item.put("userId", userId);
+        if (lastKnownLocation != null) {
+            List<Double> locationList = new ArrayList<>();
+            locationList.add(lastKnownLocation.getLatitude());
+            locationList.add(lastKnownLocation.getLongitude());
+            item.put("location", locationList);
+            item.put("geohash", Geohash.encode(lastKnownLocation.getLatitude(), lastKnownLocation.getLongitude()));
         }
 
-        if (bitmap != null) {
-            Mat imgMat = new Mat();
-            org.opencv.android.Utils.bitmapToMat(bitmap, imgMat);
-            Imgproc.cvtColor(imgMat, imgMat, Imgproc.COLOR_RGBA2GRAY);
-
-            // Extract features using ORB
-            ORB orb = ORB.create();
-            MatOfKeyPoint keypoints = new MatOfKeyPoint();
-            Mat descriptors = new Mat();
-            orb.detectAndCompute(imgMat, new Mat(), keypoints, descriptors);
-
-            // Convert descriptors to a list of doubles
-            List<Double> descriptorList = new ArrayList<>();
-            for (int i = 0; i < descriptors.rows(); i++) {
-                for (int j = 0; j < descriptors.cols(); j++) {
-                    descriptorList.add((double) descriptors.get(i, j)[0]);
-                }
+        // Extract features and upload every photo in parallel, then write the item once
+        submitButton.setEnabled(false);
+        reportPipeline.submit(new ArrayList<>(selectedImageUris), item, new ItemReportPipeline.Listener() {
+            @Override
+            public void onQueued() {
+                // The outbox finishes the upload in the background, so there is no need to wait here
+                Toast.makeText(ItemDetailsActivity.this, "Submitting item...", Toast.LENGTH_SHORT).show();
+                finish();
             }
 
-            // Upload image to Firebase Storage
-            StorageReference storageRef = storage.getReference().child("images/" + selectedImageUri.getLastPathSegment());
-            storageRef.putFile(selectedImageUri).addOnSuccessListener(taskSnapshot -> storageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                // Save item details to Firestore
-                Map<String, Object> item = new HashMap<>();
-                item.put("description", description);
-                item.put("date", date);
-                item.put("category", category);
-                item.put("imageUrl", uri.toString());
-                item.put("userId", userId);
-                item.put("timestamp", FieldValue.serverTimestamp());
-                item.put("descriptors", descriptorList);
-                if (lastKnownLocation != null) {
-                    List<Double> locationList = new ArrayList<>();
-                    locationList.add(lastKnownLocation.getLatitude());
-                    locationList.add(lastKnownLocation.getLongitude());
-                    item.put("location", locationList);
-                }
+            @Override
+            public void onPhotoUploaded(int uploaded, int total) {
+                Log.d(TAG, "Uploaded photo " + uploaded + " of " + total);
+            }
 
-                firestore.collection("items")
-                        .add(item)
-                        .addOnSuccessListener(documentReference -> {
-                            Toast.makeText(ItemDetailsActivity.this, "Item submitted successfully.", Toast.LENGTH_SHORT).show();
-                            finish();
-                        })
-                        .addOnFailureListener(e -> Toast.makeText(ItemDetailsActivity.this, "Error submitting item.", Toast.LENGTH_SHORT).show());
-            })).addOnFailureListener(e -> Toast.makeText(ItemDetailsActivity.this, "Error uploading image.", Toast.LENGTH_SHORT).show());
-        }
+            @Override
+            public void onSubmitted(String documentId) {
+                Toast.makeText(getApplicationContext(), "Item submitted successfully.", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                Log.e(TAG, "Error submitting item", e);
+                // onQueued() has usually closed the screen by now, so only the toast is left
+                if (isFinishing() || isDestroyed()) {
+                    Toast.makeText(getApplicationContext(), "Error submitting item.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                submitButton.setEnabled(true);
+                Toast.makeText(ItemDetailsActivity.this, "Error submitting item.", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void requestLocationPermission() {
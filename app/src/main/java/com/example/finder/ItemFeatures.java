@@ -0,0 +1,29 @@
+package com.example.finder;
+
+import org.opencv.core.Mat;
+
+// ORB descriptors of one image together with the (x, y) position of each keypoint.
+// keypoints is null for items stored before positions were recorded.
+public class ItemFeatures {
+
+    private final Mat descriptors;
+    private final float[] keypoints;
+
+    public ItemFeatures(Mat descriptors, float[] keypoints) {
+        this.descriptors = descriptors;
+        this.keypoints = keypoints;
+    }
+
+    public Mat getDescriptors() { return descriptors; }
+
+    // Interleaved x0, y0, x1, y1, ... aligned with the descriptor rows
+    public float[] getKeypoints() { return keypoints; }
+
+    public boolean hasKeypoints() {
+        return keypoints != null && keypoints.length == descriptors.rows() * 2;
+    }
+
+    public void release() {
+        descriptors.release();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.finder;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Cursor-paged feed of reported items, newest first. Pages are fetched on demand as the list
+// scrolls, so the first screen costs one small query however many items exist.
+public class ItemFeed {
+
+    public static final int PAGE_SIZE = 20;
+
+    // Start fetching the next page when this close to the end of what is loaded
+    public static final int PREFETCH_DISTANCE = 6;
+
+    public interface Listener {
+        // A fresh list each time, ready to hand to ListAdapter.submitList()
+        void onItemsChanged(List<Photo> photos);
+
+        void onError(Exception e);
+    }
+
+    private final FirestoreManager firestoreManager;
+    private final String collection;
+    private final Listener listener;
+
+    // Loaded pages, kept apart so a revalidated page replaces its cached copy in place
+    private final List<List<Photo>> pages = new ArrayList<>();
+    private DocumentSnapshot lastDocument;
+    private boolean loading;
+    private boolean exhausted;
+    private int generation;
+
+    public ItemFeed(FirestoreManager firestoreManager, String collection, Listener listener) {
+        this.firestoreManager = firestoreManager;
+        this.collection = collection;
+        this.listener = listener;
+    }
+
+    // Drop everything loaded so far and fetch the first page again
+    public void refresh() {
+        generation++;
+        pages.clear();
+        lastDocument = null;
+        exhausted = false;
+        loading = false;
+        loadNextPage();
+    }
+
+    // Called from the scroll listener with the last visible adapter position
+    public void onScrolledTo(int lastVisiblePosition) {
+        if (lastVisiblePosition >= loadedCount() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    public void loadNextPage() {
+        if (loading || exhausted) {
+            return;
+        }
+        loading = true;
+        int requested = generation;
+        int pageIndex = pages.size();
+        firestoreManager.fetchPage(collection, lastDocument, PAGE_SIZE, new FirestoreManager.PageCallback() {
+            @Override
+            public void onPage(List<DocumentSnapshot> documents, boolean fromCache) {
+                // A refresh() while this page was in flight makes it stale
+                if (requested != generation) {
+                    return;
+                }
+                // The cached copy is shown at once; the next page waits for the server's copy,
+                // whose last document is the authoritative cursor
+                if (!fromCache) {
+                    loading = false;
+                    exhausted = documents.size() < PAGE_SIZE;
+                }
+                if (documents.isEmpty()) {
+                    if (pageIndex < pages.size()) {
+                        pages.subList(pageIndex, pages.size()).clear();
+                        publish();
+                    }
+                    return;
+                }
+                lastDocument = documents.get(documents.size() - 1);
+                List<Photo> page = new ArrayList<>(documents.size());
+                for (DocumentSnapshot document : documents) {
+                    Photo photo = toPhoto(document);
+                    if (photo != null) {
+                        page.add(photo);
+                    }
+                }
+                if (pageIndex < pages.size()) {
+                    pages.set(pageIndex, page);
+                } else {
+                    pages.add(page);
+                }
+                publish();
+            }
+
+            @Override
+            public void onCachedPageFinal(Exception e) {
+                if (requested != generation) {
+                    return;
+                }
+                // lastDocument already points at the cached page's end, so the next page is read
+                // after it, from the cache while offline. A short cached page is not proof that
+                // the feed has ended, so exhausted is left for the server to decide.
+                loading = false;
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (requested != generation) {
+                    return;
+                }
+                loading = false;
+                listener.onError(e);
+            }
+        });
+    }
+
+    private int loadedCount() {
+        int count = 0;
+        for (List<Photo> page : pages) {
+            count += page.size();
+        }
+        return count;
+    }
+
+    private void publish() {
+        List<Photo> photos = new ArrayList<>(loadedCount());
+        for (List<Photo> page : pages) {
+            photos.addAll(page);
+        }
+        listener.onItemsChanged(Collections.unmodifiableList(photos));
+    }
+
+    private static Photo toPhoto(DocumentSnapshot document) {
+        String imageUrl = document.getString("imageUrl");
+        if (imageUrl == null) {
+            return null;
+        }
+        return new Photo(imageUrl, document.getString("thumbnailUrl"));
+    }
+}
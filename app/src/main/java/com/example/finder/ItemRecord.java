@@ -0,0 +1,50 @@
+package com.example.finder;
+
+import java.util.Collections;
+import java.util.List;
+
+// A reported item as search sees it, independent of where it is stored. Descriptor sets are kept
+// in their DescriptorCodec encoding, one per photo, and decoded only when scored.
+public class ItemRecord {
+
+    private final String documentId;
+    private final long timestamp;
+    private final String imageUrl;
+    private final String thumbnailUrl;
+    private final String description;
+    private final String category;
+    private final long dateDay;
+    private final String geohash;
+    private final List<byte[]> descriptorSets;
+
+    public ItemRecord(String documentId, long timestamp, String imageUrl, String thumbnailUrl, String description,
+                      String category, long dateDay, String geohash, List<byte[]> descriptorSets) {
+        this.documentId = documentId;
+        this.timestamp = timestamp;
+        this.imageUrl = imageUrl;
+        this.thumbnailUrl = thumbnailUrl;
+        this.description = description;
+        this.category = category;
+        this.dateDay = dateDay;
+        this.geohash = geohash;
+        this.descriptorSets = Collections.unmodifiableList(descriptorSets);
+    }
+
+    public String getDocumentId() { return documentId; }
+
+    public long getTimestamp() { return timestamp; }
+
+    public String getImageUrl() { return imageUrl; }
+
+    public String getThumbnailUrl() { return thumbnailUrl; }
+
+    public String getDescription() { return description; }
+
+    public String getCategory() { return category; }
+
+    public long getDateDay() { return dateDay; }
+
+    public String getGeohash() { return geohash; }
+
+    public List<byte[]> getDescriptorSets() { return descriptorSets; }
+}
@@ -0,0 +1,47 @@
+package com.example.finder;
+
+import android.content.Context;
+import android.net.Uri;
+
+import java.util.List;
+import java.util.Map;
+
+// Submits one item with any number of photos through the UploadOutbox. Feature extraction for
+// every photo runs alongside the resumable uploads, at most three at a time, and the item
+// document is written once, after every upload and extraction has finished.
+public class ItemReportPipeline {
+
+    public interface Listener {
+        // The item is persisted in the outbox; it will be delivered even if the app is closed
+        void onQueued();
+
+        void onPhotoUploaded(int uploaded, int total);
+
+        void onSubmitted(String documentId);
+
+        void onFailed(Exception e);
+    }
+
+    private final UploadOutbox outbox;
+
+    public ItemReportPipeline(Context context) {
+        this.outbox = UploadOutbox.getInstance(context);
+    }
+
+    // fields holds the item metadata; imageUrl(s), descriptors and timestamp are filled in by the outbox
+    public void submit(List<Uri> photos, Map<String, Object> fields, Listener listener) {
+        outbox.submit(UploadOutbox.KIND_ITEM, "items", fields, photos, true, new UploadOutbox.SubmissionListener() {
+            @Override
+            public void onQueued() {
+                listener.onQueued();
+            }
+
+            @Override
+            public void onPhotoUploaded(int uploaded, int total) {
+                listener.onPhotoUploaded(uploaded, total);
+            }
+        })
+                .addOnSuccessListener(listener::onSubmitted)
+                .addOnFailureListener(listener::onFailed);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.finder;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Source of reported items for search. FirestoreItemRepository pages the "items" collection;
+// InMemoryItemRepository serves a fixed set so matching can be benchmarked without a backend.
+public interface ItemRepository {
+
+    interface ScanListener {
+        // One page of items passing the filter's coarse checks. Return false to stop the scan;
+        // the next page is not requested until this returns.
+        boolean onPage(List<ItemRecord> items);
+
+        void onComplete();
+
+        void onError(Exception e);
+    }
+
+    // Stream every item that may match the filter, pageSize at a time. Callbacks run on the
+    // executor, one at a time. Callers still apply SearchFilter.matches() to each item.
+    void scan(SearchFilter filter, int pageSize, Executor executor, ScanListener listener);
+}
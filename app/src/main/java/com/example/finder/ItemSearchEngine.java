@@ -0,0 +1,334 @@
+package com.example.finder;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ranks every reported item against a query descriptor set.
+// Candidates come from the DescriptorStore when it has been populated, otherwise pages are
+// streamed from the ItemRepository. Candidates are scored on a bounded worker pool and the
+// running top-K is published to the listener, on the main thread by default, as it changes.
+public class ItemSearchEngine {
+
+    public static final int DEFAULT_TOP_K = 10;
+    private static final int PAGE_SIZE = 50;
+    private static final int WORKER_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int WORK_QUEUE_CAPACITY = PAGE_SIZE;
+    // Items passed from the visual word shortlist to exact Hamming verification
+    private static final int SHORTLIST_SIZE = 200;
+    // Like CallerRunsPolicy, but also runs tasks offered after shutdown() instead of dropping
+    // them, so every task still reaches finishTask and its search's onSearchFinished fires
+    private static final RejectedExecutionHandler RUN_ON_CALLER = (task, executor) -> task.run();
+
+    public interface Listener {
+        void onResultsUpdated(List<SearchResult> topResults);
+
+        void onSearchComplete(List<SearchResult> topResults, int candidatesScanned);
+
+        void onSearchFailed(Exception e);
+
+        // Called once no worker will read the query again: after onSearchComplete or
+        // onSearchFailed, or once a cancelled search has drained. The query may be released here.
+        default void onSearchFinished() {
+        }
+    }
+
+    private final ItemRepository repository;
+    private final DescriptorStore index;
+    private final VisualWordIndex visualWordIndex;
+    private final Executor callbackExecutor;
+    private final ExecutorService pageExecutor;
+    private final ThreadPoolExecutor workerPool;
+    // Searches that haven't drained yet; shutdown() cancels them
+    private final Set<Search> activeSearches = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private boolean shutdown;
+
+    public ItemSearchEngine(ItemRepository repository, DescriptorStore index, VisualWordIndex visualWordIndex) {
+        this(repository, index, visualWordIndex, new Handler(Looper.getMainLooper())::post);
+    }
+
+    // Listener callbacks run on callbackExecutor, e.g. a direct executor for benchmarks. Only the
+    // constructor above touches the Android framework; errors reach the caller through
+    // onSearchFailed rather than being logged here
+    public ItemSearchEngine(ItemRepository repository, DescriptorStore index, VisualWordIndex visualWordIndex,
+                            Executor callbackExecutor) {
+        this.repository = repository;
+        this.index = index;
+        this.visualWordIndex = visualWordIndex;
+        this.callbackExecutor = callbackExecutor;
+        // Both pools use FeatureContext threads: CallerRunsPolicy can score on the page thread too
+        this.pageExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                FeatureContext.threadFactory("search-pages"), RUN_ON_CALLER);
+        // When the queue is full the page thread scores the candidate itself, which stops it
+        // from requesting further pages until the workers have caught up
+        this.workerPool = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WORK_QUEUE_CAPACITY), FeatureContext.threadFactory("search-worker"),
+                RUN_ON_CALLER);
+    }
+
+    public Search search(ItemFeatures query, int topK, Listener listener) {
+        return search(query, SearchFilter.NONE, topK, listener);
+    }
+
+    public Search search(ItemFeatures query, SearchFilter filter, int topK, Listener listener) {
+        Search search = new Search(query, filter, topK, listener);
+        synchronized (activeSearches) {
+            if (shutdown) {
+                search.cancel();
+            }
+            activeSearches.add(search);
+        }
+        if (index != null && index.isSynced()) {
+            pageExecutor.execute(search::scanIndex);
+            if (visualWordIndex != null) {
+                visualWordIndex.refresh(index);
+            }
+        } else {
+            search.scanRepository();
+        }
+        return search;
+    }
+
+    // Cancels every running search and lets the queued tasks drain, so each search still ends
+    // with onSearchFinished and its listener can release the query
+    public void shutdown() {
+        synchronized (activeSearches) {
+            shutdown = true;
+            for (Search search : activeSearches) {
+                search.cancel();
+            }
+        }
+        pageExecutor.shutdown();
+        workerPool.shutdown();
+    }
+
+    public class Search {
+
+        private final ItemFeatures query;
+        private final SearchFilter filter;
+        private final int topK;
+        private final Listener listener;
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean updatePosted = new AtomicBoolean();
+        private final AtomicBoolean scanFinished = new AtomicBoolean();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger scanned = new AtomicInteger();
+        private volatile boolean lastPageSeen;
+
+        // Min-heap on score so the weakest of the current top-K is evicted first
+        private final PriorityQueue<SearchResult> topResults;
+        private final Map<String, SearchResult> resultsByDocument = new HashMap<>();
+
+        Search(ItemFeatures query, SearchFilter filter, int topK, Listener listener) {
+            this.query = query;
+            this.filter = filter;
+            this.topK = topK;
+            this.listener = listener;
+            this.topResults = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(SearchResult::getScore));
+        }
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        private void scanRepository() {
+            // Hold a token for the whole scan so in-flight workers can't complete the search early
+            pending.incrementAndGet();
+            repository.scan(filter, PAGE_SIZE, pageExecutor, new ItemRepository.ScanListener() {
+                @Override
+                public boolean onPage(List<ItemRecord> items) {
+                    for (ItemRecord item : items) {
+                        if (cancelled.get()) {
+                            break;
+                        }
+                        if (!filter.matches(item)) {
+                            continue;
+                        }
+                        pending.incrementAndGet();
+                        workerPool.execute(() -> {
+                            try {
+                                // Multi-photo items are scored per photo; offer() keeps the best per item
+                                for (byte[] descriptorSet : item.getDescriptorSets()) {
+                                    if (cancelled.get()) {
+                                        break;
+                                    }
+                                    score(item.getDocumentId(), item.getImageUrl(), item.getThumbnailUrl(),
+                                            item.getDescription(), DescriptorCodec.decodeFeatures(descriptorSet));
+                                }
+                            } finally {
+                                finishTask();
+                            }
+                        });
+                    }
+                    if (cancelled.get()) {
+                        // Repositories report nothing more once a scan is stopped
+                        finishScan();
+                        return false;
+                    }
+                    return true;
+                }
+
+                @Override
+                public void onComplete() {
+                    finishScan();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    cancelled.set(true);
+                    callbackExecutor.execute(() -> listener.onSearchFailed(e));
+                    finishScan();
+                }
+            });
+        }
+
+        private void scanIndex() {
+            pending.incrementAndGet();
+            lastPageSeen = true;
+            // Filter first and shortlist within what is left, so a narrow filter is not starved by
+            // better matches elsewhere in the corpus
+            List<DescriptorStore.Entry> candidates = new ArrayList<>();
+            Set<String> candidateIds = new HashSet<>();
+            for (DescriptorStore.Entry entry : index.entries(filter.getCategory())) {
+                if (filter.matches(entry)) {
+                    candidates.add(entry);
+                    candidateIds.add(entry.getDocumentId());
+                }
+            }
+            // Items not yet in the inverted file are always verified so fresh reports are never pruned
+            Set<String> shortlist = visualWordIndex != null
+                    ? visualWordIndex.shortlist(query.getDescriptors(), SHORTLIST_SIZE, candidateIds) : null;
+            for (DescriptorStore.Entry entry : candidates) {
+                if (cancelled.get()) {
+                    break;
+                }
+                if (shortlist != null && !shortlist.contains(entry.getDocumentId())
+                        && visualWordIndex.isIndexed(entry)) {
+                    continue;
+                }
+                pending.incrementAndGet();
+                workerPool.execute(() -> {
+                    try {
+                        if (!cancelled.get()) {
+                            score(DescriptorIndex.documentIdOf(entry.getDocumentId()), entry.getImageUrl(),
+                                    entry.getThumbnailUrl(), entry.getDescription(), index.readFeatures(entry));
+                        }
+                    } finally {
+                        finishTask();
+                    }
+                });
+            }
+            finishTask();
+        }
+
+        private void score(String documentId, String imageUrl, String thumbnailUrl, String description,
+                           ItemFeatures candidate) {
+            if (candidate == null) {
+                return;
+            }
+            double score = MatchScorer.score(query, candidate);
+            candidate.release();
+            scanned.incrementAndGet();
+            if (score <= 0) {
+                return;
+            }
+
+            SearchResult result = new SearchResult(documentId, imageUrl, thumbnailUrl, description, score);
+            boolean changed;
+            synchronized (topResults) {
+                changed = offer(result);
+            }
+            if (changed) {
+                postUpdate();
+            }
+        }
+
+        private boolean offer(SearchResult result) {
+            SearchResult existing = resultsByDocument.get(result.getDocumentId());
+            if (existing != null) {
+                if (result.getScore() <= existing.getScore()) {
+                    return false;
+                }
+                topResults.remove(existing);
+            } else if (topResults.size() >= topK) {
+                if (result.getScore() <= topResults.peek().getScore()) {
+                    return false;
+                }
+                resultsByDocument.remove(topResults.poll().getDocumentId());
+            }
+            topResults.add(result);
+            resultsByDocument.put(result.getDocumentId(), result);
+            return true;
+        }
+
+        // Coalesce updates so a burst of new hits produces a single UI refresh
+        private void postUpdate() {
+            if (updatePosted.compareAndSet(false, true)) {
+                callbackExecutor.execute(() -> {
+                    updatePosted.set(false);
+                    if (!cancelled.get()) {
+                        listener.onResultsUpdated(snapshot());
+                    }
+                });
+            }
+        }
+
+        // Drops the token the repository scan holds, exactly once however the scan ends
+        private void finishScan() {
+            if (scanFinished.compareAndSet(false, true)) {
+                lastPageSeen = true;
+                finishTask();
+            }
+        }
+
+        private void finishTask() {
+            if (pending.decrementAndGet() != 0 || !lastPageSeen) {
+                return;
+            }
+            if (!cancelled.get()) {
+                List<SearchResult> results = snapshot();
+                int count = scanned.get();
+                callbackExecutor.execute(() -> {
+                    if (!cancelled.get()) {
+                        listener.onSearchComplete(results, count);
+                    }
+                });
+            }
+            activeSearches.remove(this);
+            callbackExecutor.execute(listener::onSearchFinished);
+        }
+
+        private List<SearchResult> snapshot() {
+            List<SearchResult> results;
+            synchronized (topResults) {
+                results = new ArrayList<>(topResults);
+            }
+            Collections.sort(results, (a, b) -> Double.compare(b.getScore(), a.getScore()));
+            return results;
+        }
+    }
+}
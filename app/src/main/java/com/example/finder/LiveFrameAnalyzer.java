@@ -0,0 +1,89 @@
+package com.example.finder;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+// Runs analysis on camera frames without ever holding up the preview. The camera thread only
+// copies a gray frame into a single slot, and only when the analyzer is idle and the target
+// interval has passed; frames arriving while an analysis runs are dropped, so each analysis
+// always starts from the newest frame. Analysis therefore runs at min(target rate, CPU rate).
+public class LiveFrameAnalyzer {
+
+    private static final String TAG = "LiveFrameAnalyzer";
+
+    public interface Analysis {
+        // Called on the analyzer thread with a downscaled gray frame owned by the analyzer
+        void analyze(Mat gray);
+    }
+
+    private final Analysis analysis;
+    private final long intervalMs;
+    private final int maxEdge;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(FeatureContext.threadFactory("live-analyzer"));
+
+    // Written by the camera thread only while !busy, read by the analyzer thread only while busy
+    private final Mat slot = new Mat();
+    private volatile boolean busy;
+    private volatile boolean closed;
+    private long lastStartMs;
+
+    public LiveFrameAnalyzer(double targetFps, int maxEdge, Analysis analysis) {
+        this.intervalMs = (long) (1000 / targetFps);
+        this.maxEdge = maxEdge;
+        this.analysis = analysis;
+    }
+
+    // Called on the camera thread for every frame; cheap when the frame is not taken
+    public void offer(Mat gray) {
+        if (busy || closed) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastStartMs < intervalMs) {
+            return;
+        }
+        lastStartMs = now;
+        busy = true;
+        // Downscale while copying, so the slot holds only what ORB needs
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(gray.cols(), gray.rows()));
+        if (scale < 1.0) {
+            Imgproc.resize(gray, slot, new Size(Math.round(gray.cols() * scale), Math.round(gray.rows() * scale)),
+                    0, 0, Imgproc.INTER_AREA);
+        } else {
+            gray.copyTo(slot);
+        }
+        try {
+            executor.execute(this::runAnalysis);
+        } catch (RejectedExecutionException e) {
+            // Closed between the check above and now
+            busy = false;
+        }
+    }
+
+    private void runAnalysis() {
+        try {
+            if (closed) {
+                return;
+            }
+            analysis.analyze(slot);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Frame analysis failed", e);
+        } finally {
+            busy = false;
+        }
+    }
+
+    public void close() {
+        closed = true;
+        executor.execute(slot::release);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.finder;
+
+import android.Manifest;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.ImageButton;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import com.bumptech.glide.Glide;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.opencv.android.CameraBridgeViewBase;
+import org.opencv.android.JavaCamera2View;
+import org.opencv.android.OpenCVLoader;
+import org.opencv.core.Mat;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// "Point the camera at it" search. The preview runs at the camera's frame rate; a
+// LiveFrameAnalyzer takes the newest gray frame a few times a second, extracts ORB features
+// and matches them against the on-device descriptor index. The best match is shown over the
+// preview and updated as analysis results come in.
+public class LiveSearchActivity extends AppCompatActivity implements CameraBridgeViewBase.CvCameraViewListener2 {
+
+    private static final String TAG = "LiveSearchActivity";
+    private static final int CAMERA_PERMISSION_REQUEST_CODE = 2;
+
+    // Upper bound on analysis rate; slower devices settle at whatever rate matching allows
+    private static final double TARGET_ANALYSIS_FPS = 5;
+    // Frames are downscaled to this long edge before ORB, trading range for speed
+    private static final int ANALYSIS_MAX_EDGE = 640;
+    // A frame whose search takes longer than this is abandoned in favour of a newer one
+    private static final long SEARCH_TIMEOUT_MS = 3000;
+    // How often the debug overlay re-renders the stage latencies
+    private static final long METRICS_REFRESH_MS = 500;
+
+    private JavaCamera2View cameraView;
+    private LinearLayout matchOverlay;
+    private ImageView matchImageView;
+    private TextView matchTextView;
+    private TextView metricsTextView;
+
+    private DescriptorIndex descriptorIndex;
+    private DescriptorIndexSync indexSync;
+    private ItemSearchEngine searchEngine;
+    private LiveFrameAnalyzer analyzer;
+    private boolean cameraPermitted;
+    private String shownDocumentId;
+    private final FrameMetrics frameMetrics = new FrameMetrics();
+    private boolean showMetrics;
+    private long metricsShownMs;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        setContentView(R.layout.activity_live_search);
+
+        if (!OpenCVLoader.initDebug()) {
+            Log.e(TAG, "OpenCV initialization failed!");
+            Toast.makeText(this, "OpenCV initialization failed!", Toast.LENGTH_LONG).show();
+            finish();
+            return;
+        }
+
+        FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+        descriptorIndex = DescriptorIndex.getInstance(this);
+        indexSync = new DescriptorIndexSync(firestore, descriptorIndex);
+        indexSync.start();
+        // Results are consumed on the analyzer thread, which waits for each search to finish
+        searchEngine = new ItemSearchEngine(new FirestoreItemRepository(firestore), descriptorIndex,
+                VisualWordIndex.getInstance(this), Runnable::run);
+        analyzer = new LiveFrameAnalyzer(TARGET_ANALYSIS_FPS, ANALYSIS_MAX_EDGE, this::analyze);
+
+        cameraView = findViewById(R.id.cameraView);
+        matchOverlay = findViewById(R.id.matchOverlay);
+        matchImageView = findViewById(R.id.matchImageView);
+        matchTextView = findViewById(R.id.matchTextView);
+        metricsTextView = findViewById(R.id.metricsTextView);
+        showMetrics = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        metricsTextView.setVisibility(showMetrics ? View.VISIBLE : View.GONE);
+        ImageButton backButton = findViewById(R.id.backButton);
+        backButton.setOnClickListener(view -> onBackPressed());
+
+        cameraView.setVisibility(View.VISIBLE);
+        cameraView.setCvCameraViewListener(this);
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+            onCameraPermitted();
+        } else {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.CAMERA}, CAMERA_PERMISSION_REQUEST_CODE);
+        }
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == CAMERA_PERMISSION_REQUEST_CODE) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                onCameraPermitted();
+            } else {
+                Toast.makeText(this, "Camera permission denied.", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }
+    }
+
+    private void onCameraPermitted() {
+        cameraPermitted = true;
+        cameraView.setCameraPermissionGranted();
+        cameraView.enableView();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (cameraPermitted) {
+            cameraView.enableView();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (cameraView != null) {
+            cameraView.disableView();
+        }
+        if (showMetrics) {
+            frameMetrics.logSummary();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (cameraView != null) {
+            cameraView.disableView();
+        }
+        if (analyzer != null) {
+            analyzer.close();
+        }
+        if (indexSync != null) {
+            indexSync.stop();
+        }
+        if (searchEngine != null) {
+            searchEngine.shutdown();
+        }
+    }
+
+    @Override
+    public void onCameraViewStarted(int width, int height) {
+    }
+
+    @Override
+    public void onCameraViewStopped() {
+    }
+
+    // Camera thread: hand the gray plane to the analyzer and show the frame untouched
+    @Override
+    public Mat onCameraFrame(CameraBridgeViewBase.CvCameraViewFrame inputFrame) {
+        long start = System.nanoTime();
+        frameMetrics.frameDelivered(start);
+        analyzer.offer(inputFrame.gray());
+        Mat rgba = inputFrame.rgba();
+        frameMetrics.record(FrameMetrics.CAMERA, System.nanoTime() - start);
+        return rgba;
+    }
+
+    // Analyzer thread
+    private void analyze(Mat gray) {
+        if (!descriptorIndex.isSynced()) {
+            // Matching every frame against Firestore would be far too slow; wait for the full index
+            return;
+        }
+        long start = System.nanoTime();
+        ItemFeatures features = FeatureExtractor.extract(gray);
+        long extracted = System.nanoTime();
+        frameMetrics.record(FrameMetrics.EXTRACT, extracted - start);
+        if (features.getDescriptors().empty()) {
+            features.release();
+            return;
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<List<SearchResult>> results = new AtomicReference<>();
+        ItemSearchEngine.Search search = searchEngine.search(features, 1, new ItemSearchEngine.Listener() {
+            @Override
+            public void onResultsUpdated(List<SearchResult> topResults) {
+            }
+
+            @Override
+            public void onSearchComplete(List<SearchResult> topResults, int candidatesScanned) {
+                results.set(topResults);
+                done.countDown();
+            }
+
+            @Override
+            public void onSearchFailed(Exception e) {
+                Log.w(TAG, "Live search failed", e);
+                done.countDown();
+            }
+
+            // A timed-out search is only cancelled; workers may still be scoring against the
+            // query, so it is released once the engine has let go of it rather than here
+            @Override
+            public void onSearchFinished() {
+                features.release();
+            }
+        });
+        try {
+            if (!done.await(SEARCH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                search.cancel();
+            }
+        } catch (InterruptedException e) {
+            search.cancel();
+            Thread.currentThread().interrupt();
+        }
+        long matched = System.nanoTime();
+        frameMetrics.record(FrameMetrics.MATCH, matched - extracted);
+        frameMetrics.record(FrameMetrics.ANALYSIS, matched - start);
+        publishMetrics();
+
+        List<SearchResult> topResults = results.get();
+        if (topResults != null) {
+            SearchResult best = topResults.isEmpty() ? null : topResults.get(0);
+            runOnUiThread(() -> showMatch(best));
+        }
+    }
+
+    // Analyzer thread; the summary is only rebuilt a couple of times a second
+    private void publishMetrics() {
+        long now = SystemClock.elapsedRealtime();
+        if (!showMetrics || now - metricsShownMs < METRICS_REFRESH_MS) {
+            return;
+        }
+        metricsShownMs = now;
+        String summary = frameMetrics.summary();
+        runOnUiThread(() -> {
+            if (!isDestroyed()) {
+                metricsTextView.setText(summary);
+            }
+        });
+    }
+
+    private void showMatch(SearchResult best) {
+        if (isDestroyed()) {
+            return;
+        }
+        if (best == null) {
+            matchOverlay.setVisibility(View.GONE);
+            shownDocumentId = null;
+            return;
+        }
+        matchOverlay.setVisibility(View.VISIBLE);
+        matchTextView.setText(String.format(Locale.getDefault(), "%s\n%.0f%% match",
+                best.getDescription(), best.getScore() * 100));
+        // Only reload the picture when the best match actually changes
+        if (!best.getDocumentId().equals(shownDocumentId)) {
+            shownDocumentId = best.getDocumentId();
+            Glide.with(this).load(new Photo(best.getImageUrl(), best.getThumbnailUrl()).getDisplayUrl())
+                    .centerCrop().into(matchImageView);
+        }
+    }
+}
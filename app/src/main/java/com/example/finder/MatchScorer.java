@@ -0,0 +1,95 @@
+package com.example.finder;
+
+import org.opencv.calib3d.Calib3d;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.DMatch;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Scores a candidate item against the query in increasingly expensive stages:
+// kNN matching with Lowe's ratio test, then RANSAC homography on the surviving matches.
+// Each stage rejects early, so most non-matching candidates never reach findHomography.
+public class MatchScorer {
+
+    // Lowe's ratio: best match must be clearly closer than the second best
+    private static final float RATIO = 0.75f;
+    // Hamming distance (out of 256 bits) above which a match is never considered
+    private static final int MAX_DISTANCE = 64;
+    // Fewer ratio-test survivors than this cannot support a reliable homography
+    private static final int MIN_GOOD_MATCHES = 12;
+    private static final int MIN_INLIERS = 10;
+    private static final double MIN_INLIER_RATIO = 0.25;
+    private static final double RANSAC_REPROJECTION_THRESHOLD = 5.0;
+    // Ratio-test-only scores land in (0, VERIFIED_FLOOR] and verified ones in (VERIFIED_FLOOR, 1],
+    // so a geometrically verified match always outranks one that could not be verified
+    static final double VERIFIED_FLOOR = 0.5;
+
+    private MatchScorer() {
+    }
+
+    // Score in [0, 1]; 0 means the candidate was rejected. See VERIFIED_FLOOR.
+    public static double score(ItemFeatures query, ItemFeatures candidate) {
+        Mat queryDescriptors = query.getDescriptors();
+        Mat candidateDescriptors = candidate.getDescriptors();
+        if (queryDescriptors.rows() < MIN_GOOD_MATCHES || candidateDescriptors.rows() < 2
+                || queryDescriptors.cols() != candidateDescriptors.cols()) {
+            return 0;
+        }
+
+        FeatureContext context = FeatureContext.get();
+
+        // Stage 1: ratio test
+        context.matcher.knnMatch(queryDescriptors, candidateDescriptors, context.knnMatches, 2);
+        List<DMatch> good = new ArrayList<>();
+        for (MatOfDMatch pair : context.knnMatches) {
+            DMatch[] m = pair.toArray();
+            if (m.length == 2 && m[0].distance <= MAX_DISTANCE && m[0].distance < RATIO * m[1].distance) {
+                good.add(m[0]);
+            }
+        }
+        context.releaseKnnMatches();
+        if (good.size() < MIN_GOOD_MATCHES) {
+            return 0;
+        }
+
+        int normaliser = Math.min(queryDescriptors.rows(), candidateDescriptors.rows());
+        if (!query.hasKeypoints() || !candidate.hasKeypoints()) {
+            // Items stored before keypoint positions were recorded can only be ranked by the ratio test
+            return VERIFIED_FLOOR * Math.min(1.0, (double) good.size() / normaliser);
+        }
+
+        // Stage 2: geometric verification
+        float[] queryPoints = query.getKeypoints();
+        float[] candidatePoints = candidate.getKeypoints();
+        int count = good.size();
+        float[] src = context.srcPointFloats(count);
+        float[] dst = context.dstPointFloats(count);
+        for (int i = 0; i < count; i++) {
+            DMatch match = good.get(i);
+            src[i * 2] = queryPoints[match.queryIdx * 2];
+            src[i * 2 + 1] = queryPoints[match.queryIdx * 2 + 1];
+            dst[i * 2] = candidatePoints[match.trainIdx * 2];
+            dst[i * 2 + 1] = candidatePoints[match.trainIdx * 2 + 1];
+        }
+        // create() is a no-op when the scratch Mats already have this shape
+        context.srcPoints.create(count, 1, CvType.CV_32FC2);
+        context.dstPoints.create(count, 1, CvType.CV_32FC2);
+        context.srcPoints.put(0, 0, src);
+        context.dstPoints.put(0, 0, dst);
+
+        Mat homography = Calib3d.findHomography(context.srcPoints, context.dstPoints, Calib3d.RANSAC,
+                RANSAC_REPROJECTION_THRESHOLD, context.inlierMask);
+        int inliers = homography.empty() ? 0 : Core.countNonZero(context.inlierMask);
+        homography.release();
+
+        double inlierRatio = (double) inliers / good.size();
+        if (inliers < MIN_INLIERS || inlierRatio < MIN_INLIER_RATIO) {
+            return 0;
+        }
+        return VERIFIED_FLOOR + (1 - VERIFIED_FLOOR) * Math.min(1.0, (double) inliers / normaliser * inlierRatio);
+    }
+}
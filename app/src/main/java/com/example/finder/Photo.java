@@ -3,9 +3,15 @@ package com.example.finder;
 public class Photo {
 
     private String url;
+    private String thumbnailUrl;
 
     public Photo(String url) {
+        this(url, null);
+    }
+
+    public Photo(String url, String thumbnailUrl) {
         this.url = url;
+        this.thumbnailUrl = thumbnailUrl;
     }
 
     public String getUrl() {
@@ -15,4 +21,17 @@ public class Photo {
     public void setUrl(String url) {
         this.url = url;
     }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    // The small variant when one was uploaded, otherwise the full image
+    public String getDisplayUrl() {
+        return thumbnailUrl != null ? thumbnailUrl : url;
+    }
 }
@@ -1,47 +1,126 @@
 package com.example.finder;
 
-import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
-public class PhotoAdapter extends RecyclerView.Adapter<PhotoAdapter.ViewHolder> {
+public class PhotoAdapter extends ListAdapter<Photo, PhotoAdapter.ViewHolder>
+        implements ListPreloader.PreloadModelProvider<Photo> {
 
-    private List<Photo> photoList;
-    private Context context;
+    // Rows of a 2-column grid fetched ahead of the scroll position
+    private static final int PRELOAD_ROWS = 3;
+    private static final int COLUMNS = 2;
 
-    public PhotoAdapter(List<Photo> photoList) {
-        this.photoList = photoList;
+    // One request template per attached RecyclerView, reused for every bind and preload
+    private RequestBuilder<Drawable> request;
+    private final ViewPreloadSizeProvider<Photo> sizeProvider = new ViewPreloadSizeProvider<>();
+    private RecyclerViewPreloader<Photo> preloader;
+    private boolean sized;
+
+    // Photos are identified by their image URL, which is unique per uploaded file. Documents
+    // indexed before their upload finished can still come back from a search without one, so
+    // nulls must compare safely
+    private static final DiffUtil.ItemCallback<Photo> DIFF_CALLBACK = new DiffUtil.ItemCallback<Photo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Photo oldItem, @NonNull Photo newItem) {
+            return Objects.equals(oldItem.getUrl(), newItem.getUrl());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Photo oldItem, @NonNull Photo newItem) {
+            return Objects.equals(oldItem.getDisplayUrl(), newItem.getDisplayUrl());
+        }
+    };
+
+    // Lists are diffed on a background thread by submitList(); callers pass a new list each time
+    public PhotoAdapter() {
+        super(DIFF_CALLBACK);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        request = Glide.with(recyclerView)
+                .asDrawable()
+                .centerCrop()
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE);
+        sized = false;
+        preloader = new RecyclerViewPreloader<>(Glide.with(recyclerView), this, sizeProvider,
+                PRELOAD_ROWS * COLUMNS);
+        recyclerView.addOnScrollListener(preloader);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(preloader);
+        preloader = null;
+        request = null;
     }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        context = parent.getContext();
-        View view = LayoutInflater.from(context).inflate(R.layout.item_photo, parent, false);
-        return new ViewHolder(view);
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_photo, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+        sizeProvider.setView(holder.photoImageView);
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Photo photo = photoList.get(position);
-        Glide.with(context)
-                .load(photo.getUrl())
-                .centerCrop()
-                .into(holder.photoImageView);
+        Photo photo = getItem(position);
+        requestFor(photo).into(holder.photoImageView);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        Glide.with(holder.photoImageView).clear(holder.photoImageView);
+    }
+
+    @NonNull
+    @Override
+    public List<Photo> getPreloadItems(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(getItem(position));
     }
 
+    @Nullable
     @Override
-    public int getItemCount() {
-        return photoList.size();
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Photo photo) {
+        return request == null ? null : requestFor(photo);
+    }
+
+    // Pin the decode size to the measured cell once it is known, so binds and preloads share
+    // cache keys and the grid never decodes more pixels than a tile shows
+    private RequestBuilder<Drawable> requestFor(Photo photo) {
+        if (!sized) {
+            int[] size = sizeProvider.getPreloadSize(photo, 0, 0);
+            if (size != null) {
+                request = request.override(size[0], size[1]);
+                sized = true;
+            }
+        }
+        return request.load(photo.getDisplayUrl());
     }
 
     public class ViewHolder extends RecyclerView.ViewHolder {
@@ -1,7 +1,13 @@
 package com.example.finder;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.provider.MediaStore;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -13,16 +19,22 @@ import com.example.finder.PhotoAdapter;
 import com.example.finder.Photo;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class ReportItemActivity extends AppCompatActivity {
 
+    private static final String TAG = "ReportItemActivity";
+    private static final int MAX_PHOTOS = 10;
+
     private ImageButton backButton;
     private Button takePhotosButton;
     private Button uploadPhotosButton;
 
     private RecyclerView photoRecyclerView;
     private PhotoAdapter photoAdapter;
-    private ArrayList<Photo> photoList;
+    private ItemFeed itemFeed;
+
+    private ActivityResultLauncher<Intent> photoPickerLauncher;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -36,26 +48,53 @@ public class ReportItemActivity extends AppCompatActivity {
 
         // Initialize RecyclerView and LayoutManager
         photoRecyclerView = findViewById(R.id.photoRecyclerView);
-        photoList = new ArrayList<>();
-        photoAdapter = new PhotoAdapter(photoList);
+        GridLayoutManager layoutManager = new GridLayoutManager(this, 2);
+        photoAdapter = new PhotoAdapter();
         photoRecyclerView.setAdapter(photoAdapter);
-        photoRecyclerView.setLayoutManager(new GridLayoutManager(this, 2));
+        photoRecyclerView.setLayoutManager(layoutManager);
+
+        // Recently reported items, one page at a time; the adapter diffs each page off the main thread
+        itemFeed = new ItemFeed(new FirestoreManager(), "items", new ItemFeed.Listener() {
+            @Override
+            public void onItemsChanged(List<Photo> photos) {
+                photoAdapter.submitList(photos);
+            }
 
-        // Add sample photos (replace with your logic to add photos dynamically)
-        photoList.add(new Photo("https://cdn.usegalileo.ai/stability/83e9a630-a52d-4f8d-9b03-5b5647444ce9.png"));
-        photoList.add(new Photo("https://cdn.usegalileo.ai/stability/0d40ddeb-5c0f-43b3-a8ae-7a1a3e8813ca.png"));
-        photoList.add(new Photo("https://cdn.usegalileo.ai/stability/e8abd3ec-db5e-4548-8821-4bfd911b88fc.png"));
-        photoList.add(new Photo("https://cdn.usegalileo.ai/stability/c3438cf9-3cd3-46d5-94b1-ae889e679092.png"));
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error loading reported items", e);
+            }
+        });
+        photoRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                itemFeed.onScrolledTo(layoutManager.findLastVisibleItemPosition());
+            }
+        });
+        itemFeed.refresh();
 
-        // Notify adapter of changes
-        photoAdapter.notifyDataSetChanged();
+        // Pick several photos and hand them to the item details screen as one report
+        photoPickerLauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> {
+                    if (result.getResultCode() == RESULT_OK && result.getData() != null) {
+                        List<Uri> picked = ItemDetailsActivity.pickedUris(result.getData());
+                        if (!picked.isEmpty()) {
+                            Intent intent = new Intent(ReportItemActivity.this, ItemDetailsActivity.class);
+                            intent.putParcelableArrayListExtra(ItemDetailsActivity.EXTRA_IMAGE_URIS,
+                                    new ArrayList<>(picked.subList(0, Math.min(MAX_PHOTOS, picked.size()))));
+                            startActivity(intent);
+                        }
+                    }
+                });
 
         // Set click listener for uploadPhotosButton
         uploadPhotosButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                Intent intent = new Intent(ReportItemActivity.this, ItemDetailsActivity.class);
-                startActivity(intent);
+                Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+                intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+                photoPickerLauncher.launch(intent);
             }
         });
     }
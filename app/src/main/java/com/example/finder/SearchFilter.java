@@ -0,0 +1,106 @@
+package com.example.finder;
+
+// Narrows an item search before any descriptors are matched. Pushed down into the ItemRepository
+// query, so filtered-out items are never read, and applied to entries of the DescriptorStore.
+public class SearchFilter {
+
+    public static final SearchFilter NONE = new SearchFilter(Double.NaN, Double.NaN, 0, null,
+            Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private final double latitude;
+    private final double longitude;
+    private final double radiusMeters;
+    private final String category;
+    private final long fromDay;
+    private final long toDay;
+
+    private SearchFilter(double latitude, double longitude, double radiusMeters, String category,
+                         long fromDay, long toDay) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusMeters = radiusMeters;
+        this.category = category;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+    }
+
+    // Only items reported within radiusMeters of the given point
+    public static SearchFilter near(double latitude, double longitude, double radiusMeters) {
+        return NONE.withLocation(latitude, longitude, radiusMeters);
+    }
+
+    public SearchFilter withLocation(double latitude, double longitude, double radiusMeters) {
+        return new SearchFilter(latitude, longitude, radiusMeters, category, fromDay, toDay);
+    }
+
+    // Only items in this category; null matches every category
+    public SearchFilter withCategory(String category) {
+        return new SearchFilter(latitude, longitude, radiusMeters, category, fromDay, toDay);
+    }
+
+    // Only items whose date falls between the two day numbers, inclusive (see ItemDates)
+    public SearchFilter withDateRange(long fromDay, long toDay) {
+        return new SearchFilter(latitude, longitude, radiusMeters, category, fromDay, toDay);
+    }
+
+    public boolean hasLocation() {
+        return radiusMeters > 0;
+    }
+
+    public boolean hasDateRange() {
+        return fromDay != Long.MIN_VALUE || toDay != Long.MAX_VALUE;
+    }
+
+    public double getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public long getFromDay() {
+        return fromDay;
+    }
+
+    public long getToDay() {
+        return toDay;
+    }
+
+    // The category is not checked here: repositories query by it and stores are partitioned by it
+    boolean matches(ItemRecord item) {
+        return matchesLocation(item.getGeohash()) && matchesDay(item.getDateDay());
+    }
+
+    boolean matches(DescriptorStore.Entry entry) {
+        return matchesLocation(entry.getGeohash()) && matchesDay(entry.getDateDay());
+    }
+
+    private boolean matchesDay(long day) {
+        if (!hasDateRange()) {
+            return true;
+        }
+        return day != ItemDates.UNKNOWN_DAY && day >= fromDay && day <= toDay;
+    }
+
+    // Prefix cells are coarser than the circle, so the exact distance is checked per item
+    private boolean matchesLocation(String geohash) {
+        if (!hasLocation()) {
+            return true;
+        }
+        if (geohash == null || geohash.isEmpty()) {
+            return false;
+        }
+        double[] position = Geohash.decode(geohash);
+        return position != null
+                && Geohash.distanceMeters(latitude, longitude, position[0], position[1]) <= radiusMeters;
+    }
+}
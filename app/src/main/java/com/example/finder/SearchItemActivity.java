@@ -2,24 +2,34 @@ package com.example.finder;
 
 import static android.content.ContentValues.TAG;
 
+import android.Manifest;
 import android.content.Intent;
-import android.graphics.Bitmap;
+import android.content.pm.PackageManager;
+import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.View;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
+import android.widget.Spinner;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -27,31 +37,46 @@ import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.SetOptions;
 
 import org.opencv.android.OpenCVLoader;
-import org.opencv.core.CvType;
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfDMatch;
-import org.opencv.core.MatOfKeyPoint;
-import org.opencv.features2d.DescriptorMatcher;
-import org.opencv.features2d.ORB;
-import org.opencv.imgproc.Imgproc;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class SearchItemActivity extends AppCompatActivity {
 
     private static final int PICK_IMAGE_REQUEST = 1;
 
+    // Radius of the opt-in "nearby only" filter; callers may override it, 0 hides the option.
+    // Items reported without a location are outside every radius, so the filter starts off
+    public static final String EXTRA_SEARCH_RADIUS_METERS = "search_radius_meters";
+    private static final double DEFAULT_SEARCH_RADIUS_METERS = 10_000;
+
+    // Days covered by each entry of R.array.search_date_window_array; 0 means any time
+    private static final int[] DATE_WINDOW_DAYS = {0, 7, 30, 90};
+
     private ImageButton backButton;
     private ImageView selectedImageView;
     private Button selectImageButton;
     private Button searchButton;
-    private ProgressBar loadingSpinner;
+    private ProgressBar loadingProgressBar;
+    private Spinner categoryFilterSpinner;
+    private Spinner dateFilterSpinner;
+    private CheckBox nearbyFilterCheckBox;
     private Uri selectedImageUri;
 
+    private RecyclerView resultsRecyclerView;
+    private PhotoAdapter resultAdapter;
+
     private FirebaseFirestore firestore;
-    private String targetDocumentId = "jk848ivSiDNEbawRlUDJ"; // Change this to the target document's ID
+    private DescriptorIndex descriptorIndex;
+    private DescriptorIndexSync indexSync;
+    private ItemSearchEngine searchEngine;
+    private ItemSearchEngine.Search currentSearch;
+
+    private FusedLocationProviderClient fusedLocationClient;
+    private Location lastKnownLocation;
+    private double searchRadiusMeters;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -67,18 +92,57 @@ public class SearchItemActivity extends AppCompatActivity {
 
         // Initialize Firebase
         firestore = FirebaseFirestore.getInstance();
+        descriptorIndex = DescriptorIndex.getInstance(this);
+        indexSync = new DescriptorIndexSync(firestore, descriptorIndex);
+        indexSync.start();
+        searchEngine = new ItemSearchEngine(new FirestoreItemRepository(firestore), descriptorIndex,
+                VisualWordIndex.getInstance(this));
+
+        // Search near the device's last known position when location access has been granted
+        searchRadiusMeters = getIntent().getDoubleExtra(EXTRA_SEARCH_RADIUS_METERS, DEFAULT_SEARCH_RADIUS_METERS);
+        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+            fusedLocationClient.getLastLocation().addOnSuccessListener(this, location -> lastKnownLocation = location);
+        }
 
         // Initialize views
         backButton = findViewById(R.id.backButton);
         selectedImageView = findViewById(R.id.selectedImageView);
         selectImageButton = findViewById(R.id.selectImageButton);
         searchButton = findViewById(R.id.searchButton);
-        loadingSpinner = findViewById(R.id.loadingSpinner);
+        loadingProgressBar = findViewById(R.id.loadingProgressBar);
+        resultsRecyclerView = findViewById(R.id.resultsRecyclerView);
+        categoryFilterSpinner = findViewById(R.id.categoryFilterSpinner);
+        dateFilterSpinner = findViewById(R.id.dateFilterSpinner);
+        nearbyFilterCheckBox = findViewById(R.id.nearbyFilterCheckBox);
+
+        // Set up filter spinners
+        ArrayAdapter<CharSequence> categoryAdapter = ArrayAdapter.createFromResource(this,
+                R.array.search_category_array, android.R.layout.simple_spinner_item);
+        categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        categoryFilterSpinner.setAdapter(categoryAdapter);
+        ArrayAdapter<CharSequence> dateAdapter = ArrayAdapter.createFromResource(this,
+                R.array.search_date_window_array, android.R.layout.simple_spinner_item);
+        dateAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        dateFilterSpinner.setAdapter(dateAdapter);
+        if (searchRadiusMeters > 0) {
+            nearbyFilterCheckBox.setText(String.format(Locale.getDefault(),
+                    "Only items within %.0f km (hides items without a location)", searchRadiusMeters / 1000));
+        } else {
+            nearbyFilterCheckBox.setVisibility(View.GONE);
+        }
+
+        // Initialize search results grid
+        resultAdapter = new PhotoAdapter();
+        resultsRecyclerView.setAdapter(resultAdapter);
+        resultsRecyclerView.setLayoutManager(new GridLayoutManager(this, 2));
 
         // Set onClick listeners
         backButton.setOnClickListener(view -> onBackPressed());
         selectImageButton.setOnClickListener(view -> openGallery());
         searchButton.setOnClickListener(view -> searchItem());
+        findViewById(R.id.liveSearchButton).setOnClickListener(view ->
+                startActivity(new Intent(this, LiveSearchActivity.class)));
     }
 
     private void openGallery() {
@@ -91,12 +155,8 @@ public class SearchItemActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null && data.getData() != null) {
             selectedImageUri = data.getData();
-            try {
-                Bitmap bitmap = MediaStore.Images.Media.getBitmap(getContentResolver(), selectedImageUri);
-                Glide.with(this).load(bitmap).into(selectedImageView);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            // Glide decodes off the main thread, sampled down to the view's size
+            Glide.with(this).load(selectedImageUri).into(selectedImageView);
         }
     }
 
@@ -106,87 +166,126 @@ public class SearchItemActivity extends AppCompatActivity {
             return;
         }
 
-        try {
-            Bitmap bitmap = MediaStore.Images.Media.getBitmap(getContentResolver(), selectedImageUri);
-            matchImage(bitmap);
-        } catch (IOException e) {
-            e.printStackTrace();
+        // Decode and extract features in the background; taps while a job is running are ignored
+        Uri imageUri = selectedImageUri;
+        ImageProcessingExecutor.Job job = ImageProcessingExecutor.getInstance().submit(this, "search",
+                task -> {
+                    Mat gray = WorkingImageDecoder.decodeGray(getContentResolver(), imageUri);
+                    task.publishProgress(30);
+                    task.throwIfCancelled();
+                    ItemFeatures features = FeatureExtractor.extract(gray);
+                    gray.release();
+                    task.publishProgress(60);
+                    return features;
+                },
+                new ImageProcessingExecutor.Callback<ItemFeatures>() {
+                    @Override
+                    public void onProgress(int percent) {
+                        loadingProgressBar.setProgress(percent);
+                    }
+
+                    @Override
+                    public void onSuccess(ItemFeatures features) {
+                        // The number of candidates isn't known up front, so matching shows as indeterminate
+                        loadingProgressBar.setIndeterminate(true);
+                        // Rank every reported item against the query
+                        searchAllItems(features);
+                    }
+
+                    @Override
+                    public void onDiscarded(ItemFeatures features) {
+                        features.release();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        loadingProgressBar.setVisibility(View.GONE);
+                        Toast.makeText(SearchItemActivity.this, "Error processing image.", Toast.LENGTH_SHORT).show();
+                    }
+                });
+        if (job != null) {
+            loadingProgressBar.setIndeterminate(false);
+            loadingProgressBar.setProgress(0);
+            loadingProgressBar.setVisibility(View.VISIBLE);
         }
     }
 
-    private void matchImage(Bitmap bitmap) {
-        loadingSpinner.setVisibility(View.VISIBLE);
+    private void searchAllItems(ItemFeatures query) {
+        if (currentSearch != null) {
+            currentSearch.cancel();
+        }
+        resultAdapter.submitList(null);
+
+        SearchFilter filter = SearchFilter.NONE;
+        if (nearbyFilterCheckBox.isChecked() && searchRadiusMeters > 0) {
+            if (lastKnownLocation != null) {
+                filter = SearchFilter.near(lastKnownLocation.getLatitude(), lastKnownLocation.getLongitude(), searchRadiusMeters);
+            } else {
+                Toast.makeText(this, "Location unavailable, searching everywhere.", Toast.LENGTH_SHORT).show();
+            }
+        }
+        // The first category entry is "All categories"
+        if (categoryFilterSpinner.getSelectedItemPosition() > 0) {
+            filter = filter.withCategory(categoryFilterSpinner.getSelectedItem().toString());
+        }
+        int windowDays = DATE_WINDOW_DAYS[dateFilterSpinner.getSelectedItemPosition()];
+        if (windowDays > 0) {
+            long today = ItemDates.today();
+            filter = filter.withDateRange(today - windowDays, today);
+        }
+
+        currentSearch = searchEngine.search(query, filter, ItemSearchEngine.DEFAULT_TOP_K, new ItemSearchEngine.Listener() {
+            @Override
+            public void onResultsUpdated(List<SearchResult> topResults) {
+                showResults(topResults);
+            }
 
-        // Convert the bitmap to a Mat object
-        Mat imgMat = new Mat();
-        org.opencv.android.Utils.bitmapToMat(bitmap, imgMat);
-        Imgproc.cvtColor(imgMat, imgMat, Imgproc.COLOR_RGBA2GRAY);
+            @Override
+            public void onSearchComplete(List<SearchResult> topResults, int candidatesScanned) {
+                loadingProgressBar.setVisibility(View.GONE);
+                showResults(topResults);
+                if (topResults.isEmpty()) {
+                    Toast.makeText(SearchItemActivity.this, "No match found.", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(SearchItemActivity.this, topResults.size() + " potential matches found!", Toast.LENGTH_SHORT).show();
+                }
+            }
 
-        // Extract features using ORB
-        ORB orb = ORB.create();
-        MatOfKeyPoint keypoints = new MatOfKeyPoint();
-        Mat descriptors = new Mat();
-        orb.detectAndCompute(imgMat, new Mat(), keypoints, descriptors);
+            @Override
+            public void onSearchFailed(Exception e) {
+                loadingProgressBar.setVisibility(View.GONE);
+                Log.e(TAG, "Error searching items", e);
+                Toast.makeText(SearchItemActivity.this, "Error retrieving descriptors", Toast.LENGTH_SHORT).show();
+            }
 
-        // Proceed to compare with the target document
-        compareDescriptorsWithTarget(descriptors);
+            @Override
+            public void onSearchFinished() {
+                query.release();
+            }
+        });
     }
 
-    private void compareDescriptorsWithTarget(Mat descriptors) {
-        firestore.collection("items")
-                .document(targetDocumentId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    List<Double> storedDescriptorList = (List<Double>) documentSnapshot.get("descriptors");
-
-                    if (storedDescriptorList != null && !storedDescriptorList.isEmpty()) {
-                        // Convert stored descriptors back to Mat
-                        Mat storedDescriptors = new Mat(storedDescriptorList.size() / descriptors.cols(), descriptors.cols(), CvType.CV_8U);
-                        int index = 0;
-                        for (int i = 0; i < storedDescriptors.rows(); i++) {
-                            for (int j = 0; j < storedDescriptors.cols(); j++) {
-                                storedDescriptors.put(i, j, storedDescriptorList.get(index++).byteValue());
-                            }
-                        }
-
-                        // Perform matching
-                        MatOfDMatch matches = new MatOfDMatch();
-                        DescriptorMatcher matcher = DescriptorMatcher.create(DescriptorMatcher.BRUTEFORCE_HAMMING);
-                        matcher.match(descriptors, storedDescriptors, matches);
-
-                        // Check if a match is found
-                        double minDist = Double.MAX_VALUE;
-
-                        // Calculate min distance between keypoints
-                        for (int i = 0; i < matches.rows(); i++) {
-                            double dist = matches.get(i, 0)[0];
-                            if (dist < minDist) minDist = dist;
-                        }
-
-                        // Set your custom threshold
-                        double distanceThreshold = 0.000000000001; // Adjust this threshold as needed
-
-                        // Consider matches if the distance is less than the threshold
-                        boolean matchFound = (minDist > distanceThreshold);
-
-                        loadingSpinner.setVisibility(View.GONE);
-                        if (matchFound) {
-                            runOnUiThread(() -> Toast.makeText(SearchItemActivity.this, "Potential match found!", Toast.LENGTH_SHORT).show());
-                        } else {
-                            runOnUiThread(() -> Toast.makeText(SearchItemActivity.this, "No match found.", Toast.LENGTH_SHORT).show());
-                        }
-                    } else {
-                        loadingSpinner.setVisibility(View.GONE);
-                        runOnUiThread(() -> Toast.makeText(SearchItemActivity.this, "Error retrieving descriptors from target document", Toast.LENGTH_SHORT).show());
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    loadingSpinner.setVisibility(View.GONE);
-                    Log.e(TAG, "Error retrieving descriptors from target document", e);
-                    runOnUiThread(() -> Toast.makeText(SearchItemActivity.this, "Error retrieving descriptors", Toast.LENGTH_SHORT).show());
-                });
+    private void showResults(List<SearchResult> topResults) {
+        List<Photo> photos = new ArrayList<>(topResults.size());
+        for (SearchResult result : topResults) {
+            photos.add(new Photo(result.getImageUrl(), result.getThumbnailUrl()));
+        }
+        resultAdapter.submitList(photos);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (currentSearch != null) {
+            currentSearch.cancel();
+        }
+        if (indexSync != null) {
+            indexSync.stop();
+        }
+        if (searchEngine != null) {
+            searchEngine.shutdown();
+        }
+    }
 
     // Helper class for Firestore document
     public static class Item {
@@ -0,0 +1,28 @@
+package com.example.finder;
+
+public class SearchResult {
+
+    private final String documentId;
+    private final String imageUrl;
+    private final String thumbnailUrl;
+    private final String description;
+    private final double score;
+
+    public SearchResult(String documentId, String imageUrl, String thumbnailUrl, String description, double score) {
+        this.documentId = documentId;
+        this.imageUrl = imageUrl;
+        this.thumbnailUrl = thumbnailUrl;
+        this.description = description;
+        this.score = score;
+    }
+
+    public String getDocumentId() { return documentId; }
+
+    public String getImageUrl() { return imageUrl; }
+
+    public String getThumbnailUrl() { return thumbnailUrl; }
+
+    public String getDescription() { return description; }
+
+    public double getScore() { return score; }
+}
@@ -0,0 +1,138 @@
+package com.example.finder;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Shrinks a gallery photo before it is uploaded: decoded with subsampling, resized to a maximum
+// edge, rotated upright and re-encoded. Re-encoding from pixels drops EXIF and other metadata,
+// including GPS tags. Also writes a small thumbnail variant for list views.
+public class UploadImagePreparer {
+
+    public static class Config {
+        public int maxEdge = 1600;
+        public int quality = 80;
+        public int thumbnailEdge = 320;
+        public int thumbnailQuality = 70;
+        public boolean webp = true;
+
+        public String extension() {
+            return webp ? ".webp" : ".jpg";
+        }
+
+        public String contentType() {
+            return webp ? "image/webp" : "image/jpeg";
+        }
+    }
+
+    private final ContentResolver resolver;
+    private final Config config;
+
+    public UploadImagePreparer(ContentResolver resolver, Config config) {
+        this.resolver = resolver;
+        this.config = config;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    // Writes the upload-ready image to target and its thumbnail to thumbnailTarget
+    public void prepare(Uri source, File target, File thumbnailTarget) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(source)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds for " + source);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = WorkingImageDecoder.sampleSizeFor(bounds.outWidth, bounds.outHeight, config.maxEdge);
+        Bitmap decoded;
+        try (InputStream in = resolver.openInputStream(source)) {
+            decoded = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Unable to decode " + source);
+        }
+
+        // The orientation tag is about to be stripped, so bake it into the pixels
+        Bitmap full = scaleAndRotate(decoded, config.maxEdge, readOrientation(source));
+        if (full != decoded) {
+            decoded.recycle();
+        }
+        write(full, target, config.quality);
+
+        Bitmap thumbnail = scaleAndRotate(full, config.thumbnailEdge, ExifInterface.ORIENTATION_NORMAL);
+        write(thumbnail, thumbnailTarget, config.thumbnailQuality);
+        if (thumbnail != full) {
+            thumbnail.recycle();
+        }
+        full.recycle();
+    }
+
+    private int readOrientation(Uri source) {
+        try (InputStream in = resolver.openInputStream(source)) {
+            if (in == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            return new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static Bitmap scaleAndRotate(Bitmap bitmap, int maxEdge, int orientation) {
+        Matrix matrix = new Matrix();
+        int longEdge = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longEdge > maxEdge) {
+            float scale = (float) maxEdge / longEdge;
+            matrix.postScale(scale, scale);
+        }
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            default:
+                break;
+        }
+        if (matrix.isIdentity()) {
+            return bitmap;
+        }
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    private void write(Bitmap bitmap, File target, int quality) throws IOException {
+        try (OutputStream out = new FileOutputStream(target)) {
+            if (!bitmap.compress(compressFormat(), quality, out)) {
+                throw new IOException("Unable to encode " + target);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private Bitmap.CompressFormat compressFormat() {
+        if (!config.webp) {
+            return Bitmap.CompressFormat.JPEG;
+        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+}
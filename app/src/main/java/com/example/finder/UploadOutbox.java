@@ -0,0 +1,730 @@
+package com.example.finder;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Persistent queue of archive and item submissions. Each submission's photos are copied into the
+// outbox directory and uploaded as resumable Storage sessions; the session URI is checkpointed
+// after every chunk, so an interrupted upload resumes where it stopped, even after a restart.
+// Failed submissions retry with exponential backoff, and wait for a network before doing so.
+// Errors a retry cannot fix, or MAX_ATTEMPTS failures, fail the submission's task and drop it.
+// All bookkeeping runs on the main thread; disk copies and feature extraction run on executors.
+public class UploadOutbox {
+
+    private static final String TAG = "UploadOutbox";
+    private static final String DIRECTORY_NAME = "outbox";
+
+    public static final String KIND_ITEM = "item";
+    public static final String KIND_ARCHIVE = "archive";
+
+    private static final int MAX_CONCURRENT_UPLOADS = 3;
+    private static final long INITIAL_BACKOFF_MS = 2_000;
+    private static final long MAX_BACKOFF_MS = 10 * 60_000;
+    // Failed attempts while online before a submission is given up; with the backoff above
+    // that is roughly an hour of retrying
+    private static final int MAX_ATTEMPTS = 12;
+    // Firestore's limit on writes per batch
+    private static final int MAX_BATCH_WRITES = 500;
+
+    private static UploadOutbox instance;
+
+    public static synchronized UploadOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new UploadOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public interface SubmissionListener {
+        // The submission is safely on disk and will be delivered even if the app is killed
+        void onQueued();
+
+        void onPhotoUploaded(int uploaded, int total);
+    }
+
+    // One uploaded file of a submission (a photo or its thumbnail) and how far its upload has got
+    static class PhotoState {
+        boolean thumbnail;
+        String localPath;
+        String storagePath;
+        String sessionUri;
+        // Failed attempts on the current resumable session
+        int sessionFailures;
+        // Set once the file is in Storage, so a failed URL lookup retries without re-uploading
+        boolean uploaded;
+        String downloadUrl;
+        boolean uploading;
+    }
+
+    static class Submission {
+        String id;
+        String kind;
+        String collection;
+        JSONObject fields;
+        List<PhotoState> photos = new ArrayList<>();
+        boolean extractDescriptors;
+        // Base64 of each photo's encoded features, filled in once extraction completes
+        List<String> descriptorSets;
+        int attempts;
+        long nextAttemptAt;
+
+        transient boolean extracting;
+        transient boolean writing;
+        transient boolean writeAlone;
+        transient Map<String, Object> document;
+        transient boolean scheduled;
+        transient TaskCompletionSource<String> completion;
+        transient SubmissionListener listener;
+    }
+
+    private final Context context;
+    private final File directory;
+    private final FirebaseFirestore firestore;
+    private final FirebaseStorage storage;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService extractionExecutor = Executors.newFixedThreadPool(2,
+            FeatureContext.threadFactory("outbox-extract"));
+    private final Random random = new Random();
+    private final UploadImagePreparer preparer;
+
+    private final Map<String, Submission> submissions = new HashMap<>();
+    private final Queue<Runnable> pendingUploads = new ArrayDeque<>();
+    // Submissions whose document is ready, committed together by the next flushWrites()
+    private final List<Submission> readyWrites = new ArrayList<>();
+    private boolean flushPosted;
+    private int uploadsInFlight;
+    private boolean online = true;
+
+    private UploadOutbox(Context context) {
+        this.context = context;
+        this.directory = new File(context.getFilesDir(), DIRECTORY_NAME);
+        this.firestore = FirebaseFirestore.getInstance();
+        this.storage = FirebaseStorage.getInstance();
+        this.preparer = new UploadImagePreparer(context.getContentResolver(), new UploadImagePreparer.Config());
+        directory.mkdirs();
+
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity != null) {
+            online = connectivity.getActiveNetwork() != null;
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    mainHandler.post(() -> {
+                        online = true;
+                        resumeAll(true);
+                    });
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    mainHandler.post(() -> online = false);
+                }
+            });
+        }
+
+        ioExecutor.execute(this::loadPending);
+    }
+
+    // Queue a submission. The task completes with the document ID if it finishes while the
+    // process is alive; otherwise the outbox finishes it on a later launch.
+    public Task<String> submit(String kind, String collection, Map<String, Object> fields, List<Uri> photos,
+                               boolean extractDescriptors, SubmissionListener listener) {
+        TaskCompletionSource<String> completion = new TaskCompletionSource<>();
+        Submission submission = new Submission();
+        // Pre-generating the ID makes the final write idempotent across retries
+        submission.id = firestore.collection(collection).document().getId();
+        submission.kind = kind;
+        submission.collection = collection;
+        submission.extractDescriptors = extractDescriptors;
+        submission.completion = completion;
+        submission.listener = listener;
+        try {
+            submission.fields = toJson(fields);
+        } catch (JSONException e) {
+            completion.setException(e);
+            return completion.getTask();
+        }
+
+        ioExecutor.execute(() -> {
+            try {
+                // Only the transcoded copies are kept and uploaded, never the original file
+                String extension = preparer.getConfig().extension();
+                for (int i = 0; i < photos.size(); i++) {
+                    String name = submission.id + "-" + i + extension;
+                    File local = new File(directory, name);
+                    File thumbnailLocal = new File(directory, "thumb-" + name);
+                    preparer.prepare(photos.get(i), local, thumbnailLocal);
+
+                    PhotoState state = new PhotoState();
+                    state.localPath = local.getAbsolutePath();
+                    state.storagePath = "images/" + name;
+                    submission.photos.add(state);
+
+                    PhotoState thumbnailState = new PhotoState();
+                    thumbnailState.thumbnail = true;
+                    thumbnailState.localPath = thumbnailLocal.getAbsolutePath();
+                    thumbnailState.storagePath = "thumbnails/" + name;
+                    submission.photos.add(thumbnailState);
+                }
+                persist(submission);
+                mainHandler.post(() -> {
+                    submissions.put(submission.id, submission);
+                    if (listener != null) {
+                        listener.onQueued();
+                    }
+                    process(submission);
+                });
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Error queueing submission " + submission.id, e);
+                delete(submission);
+                mainHandler.post(() -> completion.setException(e));
+            }
+        });
+        return completion.getTask();
+    }
+
+    private void loadPending() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return;
+        }
+        List<Submission> loaded = new ArrayList<>();
+        for (File file : files) {
+            try {
+                loaded.add(fromJson(new JSONObject(readString(file))));
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Dropping unreadable outbox entry " + file, e);
+                file.delete();
+            }
+        }
+        mainHandler.post(() -> {
+            for (Submission submission : loaded) {
+                if (!submissions.containsKey(submission.id)) {
+                    submissions.put(submission.id, submission);
+                    process(submission);
+                }
+            }
+        });
+    }
+
+    private void resumeAll(boolean ignoreBackoff) {
+        for (Submission submission : submissions.values()) {
+            if (ignoreBackoff) {
+                submission.nextAttemptAt = 0;
+            }
+            process(submission);
+        }
+    }
+
+    private void process(Submission submission) {
+        if (!submissions.containsKey(submission.id) || submission.writing) {
+            return;
+        }
+        long wait = submission.nextAttemptAt - System.currentTimeMillis();
+        if (wait > 0) {
+            scheduleRetry(submission, wait);
+            return;
+        }
+        if (!online) {
+            // The network callback resumes everything once a connection is back
+            return;
+        }
+
+        if (submission.extractDescriptors && submission.descriptorSets == null && !submission.extracting) {
+            extract(submission);
+        }
+        for (PhotoState photo : submission.photos) {
+            if (photo.downloadUrl == null && !photo.uploading) {
+                photo.uploading = true;
+                if (photo.uploaded) {
+                    resolveDownloadUrl(submission, photo);
+                } else {
+                    pendingUploads.add(() -> upload(submission, photo));
+                }
+            }
+        }
+        startUploads();
+        maybeWrite(submission);
+    }
+
+    private void extract(Submission submission) {
+        submission.extracting = true;
+        List<PhotoState> photos = new ArrayList<>();
+        for (PhotoState photo : submission.photos) {
+            if (!photo.thumbnail) {
+                photos.add(photo);
+            }
+        }
+        extractionExecutor.execute(() -> {
+            List<String> sets = new ArrayList<>();
+            Exception failure = null;
+            try {
+                for (PhotoState photo : photos) {
+                    Mat gray = WorkingImageDecoder.decodeGray(context.getContentResolver(), Uri.fromFile(new File(photo.localPath)));
+                    ItemFeatures features = FeatureExtractor.extract(gray);
+                    gray.release();
+                    sets.add(Base64.encodeToString(DescriptorCodec.encode(features), Base64.NO_WRAP));
+                    features.release();
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+            Exception error = failure;
+            mainHandler.post(() -> {
+                submission.extracting = false;
+                if (error != null) {
+                    // The local copies are all there is: a photo that cannot be decoded now never will be
+                    giveUp(submission, error);
+                    return;
+                }
+                submission.descriptorSets = sets;
+                persistAsync(submission);
+                maybeWrite(submission);
+            });
+        });
+    }
+
+    private void upload(Submission submission, PhotoState photo) {
+        if (!submissions.containsKey(submission.id)) {
+            // Given up while this upload was queued
+            uploadsInFlight--;
+            photo.uploading = false;
+            return;
+        }
+        StorageReference ref = storage.getReference().child(photo.storagePath);
+        Uri file = Uri.fromFile(new File(photo.localPath));
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(preparer.getConfig().contentType())
+                .build();
+        UploadTask task;
+        if (photo.sessionUri != null) {
+            task = ref.putFile(file, metadata, Uri.parse(photo.sessionUri));
+        } else {
+            task = ref.putFile(file, metadata);
+        }
+
+        // Checkpoint the resumable session as soon as it exists and after each chunk
+        task.addOnProgressListener(snapshot -> {
+            Uri session = snapshot.getUploadSessionUri();
+            if (session != null && !session.toString().equals(photo.sessionUri)) {
+                photo.sessionUri = session.toString();
+                photo.sessionFailures = 0;
+                persistAsync(submission);
+            }
+        });
+
+        task.addOnCompleteListener(t -> {
+            uploadsInFlight--;
+            startUploads();
+            if (t.isSuccessful()) {
+                photo.uploaded = true;
+                photo.sessionUri = null;
+                persistAsync(submission);
+                // Resolved as each upload finishes, so the lookups overlap the remaining uploads
+                resolveDownloadUrl(submission, photo);
+            } else {
+                photo.uploading = false;
+                if (photo.sessionUri != null && !online) {
+                    // Keep the session: the upload resumes from its last chunk when we are back online
+                    Log.w(TAG, "Upload of " + photo.storagePath + " paused", t.getException());
+                } else if (photo.sessionUri != null && ++photo.sessionFailures >= 2) {
+                    // This session failing twice means it may have expired; start the next attempt
+                    // from zero. Failures of other photos or of extraction do not count here.
+                    photo.sessionUri = null;
+                    photo.sessionFailures = 0;
+                }
+                fail(submission, t.getException());
+            }
+        });
+    }
+
+    private void startUploads() {
+        while (uploadsInFlight < MAX_CONCURRENT_UPLOADS && !pendingUploads.isEmpty()) {
+            uploadsInFlight++;
+            pendingUploads.poll().run();
+        }
+    }
+
+    private void maybeWrite(Submission submission) {
+        if (!submissions.containsKey(submission.id) || submission.writing || (submission.extractDescriptors && submission.descriptorSets == null)) {
+            return;
+        }
+        List<String> urls = new ArrayList<>();
+        List<String> thumbnailUrls = new ArrayList<>();
+        for (PhotoState photo : submission.photos) {
+            if (photo.downloadUrl == null) {
+                return;
+            }
+            (photo.thumbnail ? thumbnailUrls : urls).add(photo.downloadUrl);
+        }
+
+        Map<String, Object> document;
+        try {
+            document = toMap(submission.fields);
+        } catch (JSONException e) {
+            fail(submission, e);
+            return;
+        }
+        if (!urls.isEmpty()) {
+            document.put("imageUrl", urls.get(0));
+            document.put("thumbnailUrl", thumbnailUrls.get(0));
+        }
+        if (KIND_ITEM.equals(submission.kind)) {
+            List<Blob> sets = new ArrayList<>();
+            for (String encoded : submission.descriptorSets) {
+                sets.add(Blob.fromBytes(Base64.decode(encoded, Base64.NO_WRAP)));
+            }
+            document.put("imageUrls", urls);
+            document.put("thumbnailUrls", thumbnailUrls);
+            document.put("descriptorSets", sets);
+            document.put("timestamp", FieldValue.serverTimestamp());
+        }
+
+        submission.writing = true;
+        submission.document = document;
+        readyWrites.add(submission);
+        if (!flushPosted) {
+            flushPosted = true;
+            mainHandler.post(this::flushWrites);
+        }
+    }
+
+    // Commit every ready document in one WriteBatch: one round-trip however many submissions
+    // finished uploading together, e.g. after the outbox resumes from being offline
+    private void flushWrites() {
+        flushPosted = false;
+        while (!readyWrites.isEmpty()) {
+            List<Submission> batchSubmissions = new ArrayList<>();
+            Submission first = readyWrites.remove(0);
+            batchSubmissions.add(first);
+            if (!first.writeAlone) {
+                Iterator<Submission> ready = readyWrites.iterator();
+                while (ready.hasNext() && batchSubmissions.size() < MAX_BATCH_WRITES) {
+                    Submission next = ready.next();
+                    if (!next.writeAlone) {
+                        batchSubmissions.add(next);
+                        ready.remove();
+                    }
+                }
+            }
+
+            WriteBatch batch = firestore.batch();
+            for (Submission submission : batchSubmissions) {
+                batch.set(firestore.collection(submission.collection).document(submission.id), submission.document);
+            }
+            batch.commit().addOnCompleteListener(t -> {
+                for (Submission submission : batchSubmissions) {
+                    submission.writing = false;
+                    submission.document = null;
+                    if (t.isSuccessful()) {
+                        submissions.remove(submission.id);
+                        ioExecutor.execute(() -> delete(submission));
+                        if (submission.completion != null) {
+                            submission.completion.trySetResult(submission.id);
+                        }
+                    } else if (batchSubmissions.size() > 1 && isPermanent(t.getException())) {
+                        // One rejected document fails the whole batch; write each on its own so
+                        // only the culprit is given up
+                        submission.writeAlone = true;
+                        maybeWrite(submission);
+                    } else {
+                        fail(submission, t.getException());
+                    }
+                }
+            });
+        }
+    }
+
+    // Storage issues the download token itself; the URL is only final once it has done so.
+    // This is the one round-trip per file left on the submit path, kept deliberately: readers
+    // (the feed, search results, Glide) load plain https URLs from the document, and the only
+    // way to know one up front is the undocumented token metadata. The lookup holds no upload
+    // slot, so for multi-photo items it overlaps the uploads still running.
+    private void resolveDownloadUrl(Submission submission, PhotoState photo) {
+        storage.getReference().child(photo.storagePath).getDownloadUrl().addOnCompleteListener(t -> {
+            photo.uploading = false;
+            if (t.isSuccessful()) {
+                photo.downloadUrl = t.getResult().toString();
+                persistAsync(submission);
+                notifyProgress(submission);
+                maybeWrite(submission);
+            } else {
+                fail(submission, t.getException());
+            }
+        });
+    }
+
+    private void fail(Submission submission, Exception e) {
+        if (!submissions.containsKey(submission.id)) {
+            return;
+        }
+        // Failures caused by losing the network do not count towards giving up
+        if (online) {
+            submission.attempts++;
+        }
+        if (isPermanent(e) || submission.attempts >= MAX_ATTEMPTS) {
+            giveUp(submission, e);
+            return;
+        }
+        long backoff = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(Math.max(submission.attempts - 1, 0), 20));
+        // Jitter spreads out retries from many queued submissions after an outage
+        backoff += (long) (random.nextDouble() * backoff / 2);
+        submission.nextAttemptAt = System.currentTimeMillis() + backoff;
+        persistAsync(submission);
+        Log.w(TAG, "Submission " + submission.id + " failed (attempt " + submission.attempts
+                + "), retrying in " + backoff + " ms", e);
+        scheduleRetry(submission, backoff);
+    }
+
+    // Drop the submission and its local files, and fail its task so the caller hears about it.
+    // Work still in flight for it finds it gone and stops.
+    private void giveUp(Submission submission, Exception e) {
+        if (submissions.remove(submission.id) == null) {
+            return;
+        }
+        Log.e(TAG, "Giving up on submission " + submission.id + " after " + submission.attempts + " attempts", e);
+        readyWrites.remove(submission);
+        ioExecutor.execute(() -> delete(submission));
+        if (submission.completion != null) {
+            submission.completion.trySetException(e != null ? e : new IOException("Submission " + submission.id + " failed"));
+        }
+    }
+
+    // Errors a retry cannot fix: rejected by security rules, a malformed document, or a bucket
+    // or project that does not exist
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof StorageException) {
+            int code = ((StorageException) e).getErrorCode();
+            return code == StorageException.ERROR_NOT_AUTHORIZED
+                    || code == StorageException.ERROR_BUCKET_NOT_FOUND
+                    || code == StorageException.ERROR_PROJECT_NOT_FOUND;
+        }
+        if (e instanceof FirebaseFirestoreException) {
+            FirebaseFirestoreException.Code code = ((FirebaseFirestoreException) e).getCode();
+            return code == FirebaseFirestoreException.Code.PERMISSION_DENIED
+                    || code == FirebaseFirestoreException.Code.INVALID_ARGUMENT
+                    || code == FirebaseFirestoreException.Code.FAILED_PRECONDITION
+                    || code == FirebaseFirestoreException.Code.OUT_OF_RANGE
+                    || code == FirebaseFirestoreException.Code.UNIMPLEMENTED;
+        }
+        return false;
+    }
+
+    private void scheduleRetry(Submission submission, long delay) {
+        if (submission.scheduled) {
+            return;
+        }
+        submission.scheduled = true;
+        mainHandler.postDelayed(() -> {
+            submission.scheduled = false;
+            process(submission);
+        }, delay);
+    }
+
+    private void notifyProgress(Submission submission) {
+        if (submission.listener == null) {
+            return;
+        }
+        int uploaded = 0;
+        int total = 0;
+        for (PhotoState photo : submission.photos) {
+            if (photo.thumbnail) {
+                continue;
+            }
+            total++;
+            if (photo.downloadUrl != null) {
+                uploaded++;
+            }
+        }
+        submission.listener.onPhotoUploaded(uploaded, total);
+    }
+
+    private void persistAsync(Submission submission) {
+        String json;
+        try {
+            json = toJson(submission).toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "Error serialising submission " + submission.id, e);
+            return;
+        }
+        ioExecutor.execute(() -> {
+            if (new File(directory, submission.id + ".json").exists()) {
+                writeString(submission.id, json);
+            }
+        });
+    }
+
+    private void persist(Submission submission) throws JSONException, IOException {
+        if (!writeString(submission.id, toJson(submission).toString())) {
+            throw new IOException("Could not persist submission " + submission.id);
+        }
+    }
+
+    // Write via a temporary file and rename, so a crash never leaves a half-written entry
+    private boolean writeString(String id, String json) {
+        File tmp = new File(directory, id + ".json.tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing outbox entry " + id, e);
+            return false;
+        }
+        return tmp.renameTo(new File(directory, id + ".json"));
+    }
+
+    private void delete(Submission submission) {
+        new File(directory, submission.id + ".json").delete();
+        for (PhotoState photo : submission.photos) {
+            new File(photo.localPath).delete();
+        }
+    }
+
+    private static String readString(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                read += n;
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static JSONObject toJson(Submission submission) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("id", submission.id);
+        json.put("kind", submission.kind);
+        json.put("collection", submission.collection);
+        json.put("fields", submission.fields);
+        json.put("extractDescriptors", submission.extractDescriptors);
+        json.put("attempts", submission.attempts);
+        json.put("nextAttemptAt", submission.nextAttemptAt);
+        if (submission.descriptorSets != null) {
+            json.put("descriptorSets", new JSONArray(submission.descriptorSets));
+        }
+        JSONArray photos = new JSONArray();
+        for (PhotoState photo : submission.photos) {
+            JSONObject p = new JSONObject();
+            p.put("thumbnail", photo.thumbnail);
+            p.put("localPath", photo.localPath);
+            p.put("storagePath", photo.storagePath);
+            p.putOpt("sessionUri", photo.sessionUri);
+            p.put("sessionFailures", photo.sessionFailures);
+            p.put("uploaded", photo.uploaded);
+            p.putOpt("downloadUrl", photo.downloadUrl);
+            photos.put(p);
+        }
+        json.put("photos", photos);
+        return json;
+    }
+
+    private static Submission fromJson(JSONObject json) throws JSONException {
+        Submission submission = new Submission();
+        submission.id = json.getString("id");
+        submission.kind = json.getString("kind");
+        submission.collection = json.getString("collection");
+        submission.fields = json.getJSONObject("fields");
+        submission.extractDescriptors = json.optBoolean("extractDescriptors");
+        submission.attempts = json.optInt("attempts");
+        submission.nextAttemptAt = json.optLong("nextAttemptAt");
+        JSONArray sets = json.optJSONArray("descriptorSets");
+        if (sets != null) {
+            submission.descriptorSets = new ArrayList<>();
+            for (int i = 0; i < sets.length(); i++) {
+                submission.descriptorSets.add(sets.getString(i));
+            }
+        }
+        JSONArray photos = json.getJSONArray("photos");
+        for (int i = 0; i < photos.length(); i++) {
+            JSONObject p = photos.getJSONObject(i);
+            PhotoState photo = new PhotoState();
+            photo.thumbnail = p.optBoolean("thumbnail");
+            photo.localPath = p.getString("localPath");
+            photo.storagePath = p.getString("storagePath");
+            photo.sessionUri = p.optString("sessionUri", null);
+            photo.sessionFailures = p.optInt("sessionFailures");
+            photo.uploaded = p.optBoolean("uploaded");
+            photo.downloadUrl = p.optString("downloadUrl", null);
+            submission.photos.add(photo);
+        }
+        return submission;
+    }
+
+    // Submission fields are plain values: strings, numbers, booleans and lists of those
+    private static JSONObject toJson(Map<String, Object> fields) throws JSONException {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = field.getValue();
+            json.put(field.getKey(), value instanceof List ? new JSONArray((List<?>) value) : value);
+        }
+        return json;
+    }
+
+    private static Map<String, Object> toMap(JSONObject json) throws JSONException {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = json.get(key);
+            if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                List<Object> list = new ArrayList<>(array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    list.add(array.get(i));
+                }
+                value = list;
+            }
+            map.put(key, value);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.finder;
+
+import android.util.Log;
+
+import org.opencv.core.CvType;
+import org.opencv.core.DMatch;
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Visual words for binary ORB descriptors, trained by k-majority directly on the packed bits:
+// each round assigns rows to their nearest word with the Hamming matcher, then sets every bit of
+// a word to the majority of its members. Words live in the same Hamming space as the descriptors,
+// so quantisation can use BRUTEFORCE_HAMMING too. Training reads at most MAX_TRAINING_ROWS rows
+// (about 640 KB packed), so it fits any heap and finishes in seconds on the build thread.
+public class VisualVocabulary {
+
+    private static final String TAG = "VisualVocabulary";
+
+    public static final int DEFAULT_WORD_COUNT = 1024;
+    private static final int TRAINING_ITERATIONS = 10;
+    private static final int MAX_TRAINING_ROWS = 20_000;
+
+    private final Mat words;
+
+    private VisualVocabulary(Mat words) {
+        this.words = words;
+    }
+
+    public int size() {
+        return words.rows();
+    }
+
+    public static VisualVocabulary train(List<Mat> samples, int wordCount) {
+        int cols = 0;
+        for (Mat sample : samples) {
+            cols = Math.max(cols, sample.cols());
+        }
+        if (samples.isEmpty() || cols == 0) {
+            return null;
+        }
+
+        // Spread the row budget evenly so every sampled item contributes
+        Random random = new Random();
+        int perSample = Math.max(1, MAX_TRAINING_ROWS / samples.size());
+        byte[] data = new byte[MAX_TRAINING_ROWS * cols];
+        int rows = 0;
+        for (Mat sample : samples) {
+            if (sample.cols() != cols || sample.empty()) {
+                continue;
+            }
+            byte[] sampleData = new byte[sample.rows() * cols];
+            sample.get(0, 0, sampleData);
+            int[] order = shuffledIndices(sample.rows(), random);
+            for (int i = 0; i < Math.min(perSample, order.length) && rows < MAX_TRAINING_ROWS; i++) {
+                System.arraycopy(sampleData, order[i] * cols, data, rows * cols, cols);
+                rows++;
+            }
+        }
+        if (rows < wordCount) {
+            return null;
+        }
+
+        Mat trainingSet = new Mat(rows, cols, CvType.CV_8U);
+        trainingSet.put(0, 0, Arrays.copyOf(data, rows * cols));
+
+        // Seed with distinct random rows
+        byte[] packed = new byte[wordCount * cols];
+        int[] seeds = shuffledIndices(rows, random);
+        for (int w = 0; w < wordCount; w++) {
+            System.arraycopy(data, seeds[w] * cols, packed, w * cols, cols);
+        }
+        Mat words = new Mat(wordCount, cols, CvType.CV_8U);
+        words.put(0, 0, packed);
+
+        int bits = cols * 8;
+        int[] bitCounts = new int[wordCount * bits];
+        int[] members = new int[wordCount];
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+        FeatureContext context = FeatureContext.get();
+        for (int iteration = 0; iteration < TRAINING_ITERATIONS; iteration++) {
+            context.matcher.match(trainingSet, words, context.matches);
+            DMatch[] nearest = context.matches.toArray();
+
+            Arrays.fill(bitCounts, 0);
+            Arrays.fill(members, 0);
+            int changed = 0;
+            for (DMatch match : nearest) {
+                int row = match.queryIdx;
+                int word = match.trainIdx;
+                if (assignment[row] != word) {
+                    assignment[row] = word;
+                    changed++;
+                }
+                members[word]++;
+                int countBase = word * bits;
+                int rowBase = row * cols;
+                for (int j = 0; j < cols; j++) {
+                    int b = data[rowBase + j];
+                    for (int bit = 0; bit < 8; bit++) {
+                        if ((b & (0x80 >> bit)) != 0) {
+                            bitCounts[countBase + j * 8 + bit]++;
+                        }
+                    }
+                }
+            }
+            if (changed == 0) {
+                break;
+            }
+
+            for (int w = 0; w < wordCount; w++) {
+                if (members[w] == 0) {
+                    // An empty word restarts from a random row instead of going to waste
+                    System.arraycopy(data, random.nextInt(rows) * cols, packed, w * cols, cols);
+                    continue;
+                }
+                for (int j = 0; j < cols; j++) {
+                    int value = 0;
+                    for (int bit = 0; bit < 8; bit++) {
+                        value = (value << 1) | (bitCounts[w * bits + j * 8 + bit] * 2 > members[w] ? 1 : 0);
+                    }
+                    packed[w * cols + j] = (byte) value;
+                }
+            }
+            words.put(0, 0, packed);
+        }
+        trainingSet.release();
+        Log.i(TAG, "Trained " + wordCount + " words on " + rows + " descriptors");
+        return new VisualVocabulary(words);
+    }
+
+    private static int[] shuffledIndices(int n, Random random) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = indices[i];
+            indices[i] = indices[j];
+            indices[j] = tmp;
+        }
+        return indices;
+    }
+
+    public static VisualVocabulary load(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading vocabulary", e);
+            return null;
+        }
+        Mat words = DescriptorCodec.decode(bytes);
+        return words != null && !words.empty() ? new VisualVocabulary(words) : null;
+    }
+
+    public void save(File file) {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(DescriptorCodec.encode(words));
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving vocabulary", e);
+        }
+    }
+
+    // Nearest word index for each descriptor row
+    public int[] quantize(Mat descriptors) {
+        if (descriptors.empty() || descriptors.cols() != words.cols()) {
+            return new int[0];
+        }
+        FeatureContext context = FeatureContext.get();
+        context.matcher.match(descriptors, words, context.matches);
+        DMatch[] array = context.matches.toArray();
+
+        int[] wordIds = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            wordIds[i] = array[i].trainIdx;
+        }
+        return wordIds;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.finder;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.opencv.core.Mat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Candidate pruning for item search. Mirrors the DescriptorIndex as bags of visual words in an
+// InvertedFileIndex so a query only needs exact Hamming verification against a TF-IDF shortlist.
+public class VisualWordIndex {
+
+    private static final String TAG = "VisualWordIndex";
+    private static final String VOCABULARY_FILE_NAME = "visual_vocabulary.bin";
+
+    // Below this many items an exhaustive scan is already cheap, and too few images to train on
+    private static final int MIN_ITEMS_FOR_TRAINING = 500;
+    private static final int TRAINING_SAMPLE_ITEMS = 200;
+
+    private static VisualWordIndex instance;
+
+    public static synchronized VisualWordIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new VisualWordIndex(new File(context.getApplicationContext().getFilesDir(), VOCABULARY_FILE_NAME));
+        }
+        return instance;
+    }
+
+    private final File vocabularyFile;
+    private final ExecutorService buildExecutor = Executors.newSingleThreadExecutor(
+            FeatureContext.threadFactory("visual-words"));
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile VisualVocabulary vocabulary;
+    private volatile InvertedFileIndex invertedFile;
+
+    VisualWordIndex(File vocabularyFile) {
+        this.vocabularyFile = vocabularyFile;
+    }
+
+    // Bring the inverted file in line with the descriptor store on a background thread
+    public void refresh(DescriptorStore index) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        buildExecutor.execute(() -> {
+            try {
+                doRefresh(index);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error refreshing visual word index", e);
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    // True when the shortlist reflects this exact revision of the entry; a rewritten entry has to
+    // be scanned until the next refresh re-quantizes it
+    public boolean isIndexed(DescriptorStore.Entry entry) {
+        InvertedFileIndex current = invertedFile;
+        return current != null && current.revisionOf(entry.getDocumentId()) == entry.getRevision();
+    }
+
+    // IDs of the n most promising items among candidates (null for all of them), or null when
+    // every candidate should be scanned instead
+    public Set<String> shortlist(Mat queryDescriptors, int n, Set<String> candidates) {
+        InvertedFileIndex current = invertedFile;
+        if (current == null || current.size() <= n || (candidates != null && candidates.size() <= n)) {
+            return null;
+        }
+        int[] words = vocabulary.quantize(queryDescriptors);
+        return new HashSet<>(current.shortlist(InvertedFileIndex.WordHistogram.of(words), n, candidates));
+    }
+
+    private void doRefresh(DescriptorStore index) {
+        if (vocabulary == null) {
+            VisualVocabulary loaded = VisualVocabulary.load(vocabularyFile);
+            if (loaded == null) {
+                if (index.size() < MIN_ITEMS_FOR_TRAINING) {
+                    return;
+                }
+                loaded = train(index);
+                if (loaded == null) {
+                    return;
+                }
+                loaded.save(vocabularyFile);
+            }
+            vocabulary = loaded;
+        }
+
+        // Populate privately on first build so searches never see a half-filled shortlist
+        InvertedFileIndex target = invertedFile != null ? invertedFile : new InvertedFileIndex(vocabulary.size());
+        Set<String> stale = target.documentIds();
+        for (DescriptorStore.Entry entry : index.entries()) {
+            stale.remove(entry.getDocumentId());
+            if (target.revisionOf(entry.getDocumentId()) == entry.getRevision()) {
+                continue;
+            }
+            Mat descriptors = index.readDescriptors(entry);
+            if (descriptors == null) {
+                continue;
+            }
+            target.add(entry.getDocumentId(), entry.getRevision(), InvertedFileIndex.WordHistogram.of(vocabulary.quantize(descriptors)));
+            descriptors.release();
+        }
+        for (String documentId : stale) {
+            target.remove(documentId);
+        }
+        invertedFile = target;
+    }
+
+    private VisualVocabulary train(DescriptorStore index) {
+        List<DescriptorStore.Entry> entries = index.entries();
+        Collections.shuffle(entries);
+        List<Mat> samples = new ArrayList<>();
+        for (DescriptorStore.Entry entry : entries.subList(0, Math.min(TRAINING_SAMPLE_ITEMS, entries.size()))) {
+            Mat descriptors = index.readDescriptors(entry);
+            if (descriptors != null && !descriptors.empty()) {
+                samples.add(descriptors);
+            }
+        }
+        Log.i(TAG, "Training vocabulary on " + samples.size() + " items");
+        VisualVocabulary trained = VisualVocabulary.train(samples, VisualVocabulary.DEFAULT_WORD_COUNT);
+        for (Mat sample : samples) {
+            sample.release();
+        }
+        return trained;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.finder;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Decodes gallery images straight to a bounded working resolution for feature extraction.
+// inSampleSize subsamples inside the JPEG/PNG decoder, so a 50 MP photo never exists in memory
+// at full size; the remainder is an area resize and a conversion to a single-channel Mat.
+public class WorkingImageDecoder {
+
+    // Longest edge, in pixels, of the image handed to ORB
+    public static final int DEFAULT_MAX_EDGE = 1024;
+
+    private WorkingImageDecoder() {
+    }
+
+    public static Mat decodeGray(ContentResolver resolver, Uri uri) throws IOException {
+        return decodeGray(resolver, uri, DEFAULT_MAX_EDGE);
+    }
+
+    public static Mat decodeGray(ContentResolver resolver, Uri uri, int maxEdge) throws IOException {
+        // Read only the header to learn the source dimensions
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Unable to read image bounds for " + uri);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, maxEdge);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap bitmap;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Unable to decode " + uri);
+        }
+
+        Mat rgba = new Mat();
+        org.opencv.android.Utils.bitmapToMat(bitmap, rgba);
+        bitmap.recycle();
+
+        Mat gray = new Mat();
+        Imgproc.cvtColor(rgba, gray, Imgproc.COLOR_RGBA2GRAY);
+        rgba.release();
+
+        // inSampleSize only goes in powers of two; finish the last step on the smaller gray plane
+        int longEdge = Math.max(gray.cols(), gray.rows());
+        if (longEdge > maxEdge) {
+            double scale = (double) maxEdge / longEdge;
+            Mat resized = new Mat();
+            Imgproc.resize(gray, resized, new Size(Math.round(gray.cols() * scale), Math.round(gray.rows() * scale)),
+                    0, 0, Imgproc.INTER_AREA);
+            gray.release();
+            gray = resized;
+        }
+        return gray;
+    }
+
+    // Largest power of two that keeps the decoded long edge at or above maxEdge
+    static int sampleSizeFor(int width, int height, int maxEdge) {
+        int longEdge = Math.max(width, height);
+        int sampleSize = 1;
+        while (longEdge / (sampleSize * 2) >= maxEdge) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -1,5 +1,6 @@
 package org.opencv.utils;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -770,4 +771,73 @@ public class Converters {
         }
         mats.clear();
     }
+
+    public static Mat array_uchar_to_Mat(byte[] data, int rows, int cols) {
+        return array_uchar_to_Mat(data, 0, rows, cols);
+    }
+
+    public static Mat array_uchar_to_Mat(byte[] data, int offset, int rows, int cols) {
+        if (data == null)
+            throw new java.lang.IllegalArgumentException("Input array can't be null");
+        int count = rows * cols;
+        if (rows < 0 || cols < 0 || offset < 0 || data.length - offset < count)
+            throw new java.lang.IllegalArgumentException(
+                    "Input array is too short for a " + rows + "x" + cols + " matrix at offset " + offset);
+
+        Mat res = new Mat(rows, cols, CvType.CV_8UC1);
+        if (count > 0)
+            res.put(0, 0, data, offset, count);
+        return res;
+    }
+
+    public static Mat ByteBuffer_to_Mat(ByteBuffer buf, int rows, int cols) {
+        if (buf == null)
+            throw new java.lang.IllegalArgumentException("Input ByteBuffer can't be null");
+        int count = rows * cols;
+        if (rows < 0 || cols < 0 || buf.remaining() < count)
+            throw new java.lang.IllegalArgumentException(
+                    "Input ByteBuffer is too short for a " + rows + "x" + cols + " matrix");
+
+        Mat res;
+        if (buf.hasArray()) {
+            res = array_uchar_to_Mat(buf.array(), buf.arrayOffset() + buf.position(), rows, cols);
+        } else if (count > 0) {
+            // Wrap the direct buffer without copying, then detach from it with a single native copy
+            ByteBuffer slice = buf.slice();
+            Mat wrapped = new Mat(rows, cols, CvType.CV_8UC1, slice);
+            res = wrapped.clone();
+            wrapped.release();
+        } else {
+            res = new Mat(rows, cols, CvType.CV_8UC1);
+        }
+        buf.position(buf.position() + count);
+        return res;
+    }
+
+    public static byte[] Mat_to_array_uchar(Mat m) {
+        if (m == null)
+            throw new java.lang.IllegalArgumentException("Input Mat can't be null");
+        if (CvType.CV_8UC1 != m.type())
+            throw new java.lang.IllegalArgumentException(
+                    "CvType.CV_8UC1 != m.type()\n" + m);
+
+        byte[] buff = new byte[(int) m.total()];
+        if (buff.length > 0) {
+            Mat src = m.isContinuous() ? m : m.clone();
+            src.get(0, 0, buff);
+            if (src != m)
+                src.release();
+        }
+        return buff;
+    }
+
+    public static void Mat_to_ByteBuffer(Mat m, ByteBuffer buf) {
+        if (buf == null)
+            throw new java.lang.IllegalArgumentException("Output ByteBuffer can't be null");
+        byte[] buff = Mat_to_array_uchar(m);
+        if (buf.remaining() < buff.length)
+            throw new java.lang.IllegalArgumentException(
+                    "Output ByteBuffer has " + buf.remaining() + " bytes left, " + buff.length + " needed");
+        buf.put(buff);
+    }
 }